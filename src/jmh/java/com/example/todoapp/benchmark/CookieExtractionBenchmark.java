@@ -0,0 +1,43 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.security.JwtAuthFilter;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// JwtAuthFilter runs this on every request, with or without a JWT cookie
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CookieExtractionBenchmark {
+
+    private Cookie[] jwtOnly;
+    private Cookie[] jwtAmongOthers;
+    private Cookie[] noJwt;
+
+    @Setup
+    public void setUp() {
+        Cookie jwt = new Cookie("JWT", "header.payload.signature");
+        jwtOnly = new Cookie[] {jwt};
+        jwtAmongOthers = new Cookie[] {
+                new Cookie("_ga", "GA1.1.123"), new Cookie("theme", "dark"), new Cookie("XSRF-TOKEN", "abc"), jwt
+        };
+        noJwt = new Cookie[] {new Cookie("_ga", "GA1.1.123"), new Cookie("theme", "dark")};
+    }
+
+    @Benchmark
+    public String jwtOnly() {
+        return JwtAuthFilter.readTokenCookie(jwtOnly);
+    }
+
+    @Benchmark
+    public String jwtAmongOthers() {
+        return JwtAuthFilter.readTokenCookie(jwtAmongOthers);
+    }
+
+    @Benchmark
+    public String noJwtCookie() {
+        return JwtAuthFilter.readTokenCookie(noJwt);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Token issue/verify cost per request; every read method re-verifies the HS256 signature
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil("benchmark-secret-benchmark-secret-0123456789", 86_400_000L);
+        token = jwtUtil.generateToken("alice", Set.of("ROLE_USER"), 3);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("alice", Set.of("ROLE_USER"), 3);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Set<String> getRoles() {
+        return jwtUtil.getRoles(token);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+}
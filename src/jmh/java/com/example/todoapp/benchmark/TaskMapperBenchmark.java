@@ -0,0 +1,29 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.Task;
+import com.example.todoapp.User;
+import com.example.todoapp.dto.TaskDTO;
+import com.example.todoapp.mapper.TaskMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskMapperBenchmark {
+
+    private final TaskMapper mapper = new TaskMapper();
+    private Task task;
+
+    @Setup
+    public void setUp() {
+        task = new Task("Write benchmarks", new User("alice", "secret"));
+        task.setDone(true);
+    }
+
+    @Benchmark
+    public TaskDTO toDTO() {
+        return mapper.toDTO(task);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.todoapp;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+// A completed task moved out of `tasks` by TaskArchiver; keeps the task's id.
+// Persistable makes save() a plain insert, as for TaskTombstone.
+@Entity
+@Table(name = "tasks_archive")
+public class ArchivedTask implements Persistable<Long> {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    protected ArchivedTask() {}
+
+    public ArchivedTask(Task task, Instant archivedAt) {
+        this.id = task.getId();
+        this.title = task.getTitle();
+        this.userId = task.getUser().getId();
+        this.completedAt = task.getCompletedAt();
+        this.archivedAt = archivedAt;
+    }
+
+    @PostLoad
+    void markLoaded() { this.isNew = false; }
+
+    @Override
+    public Long getId() { return id; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    public String getTitle() { return title; }
+    public Long getUserId() { return userId; }
+    public Instant getCompletedAt() { return completedAt; }
+    public Instant getArchivedAt() { return archivedAt; }
+}
@@ -0,0 +1,29 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.ArchivedTaskDTO;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ArchivedTaskRepository extends JpaRepository<ArchivedTask, Long> {
+
+    // keyset pages like TaskRepository.findPageByUsername, on (user_id, id); uncached
+    @Query("""
+            select new com.example.todoapp.dto.ArchivedTaskDTO(a.id, a.title, u.username, a.completedAt, a.archivedAt)
+            from ArchivedTask a join User u on u.id = a.userId
+            where u.username = :username and a.id > :after
+            order by a.id""")
+    @Transactional(readOnly = true)
+    List<ArchivedTaskDTO> findPageByUsername(String username, long after, Limit limit);
+
+    @Query("""
+            select new com.example.todoapp.dto.ArchivedTaskDTO(a.id, a.title, u.username, a.completedAt, a.archivedAt)
+            from ArchivedTask a left join User u on u.id = a.userId
+            where a.id > :after
+            order by a.id""")
+    @Transactional(readOnly = true)
+    List<ArchivedTaskDTO> findPage(long after, Limit limit);
+}
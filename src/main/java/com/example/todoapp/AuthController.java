@@ -1,11 +1,16 @@
 package com.example.todoapp;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.example.todoapp.dto.UserDTO;
 import com.example.todoapp.dto.AuthResponseDTO;
 import com.example.todoapp.dto.LogoutResponseDTO;
+import com.example.todoapp.exception.TooManyRequestsException;
 import com.example.todoapp.exception.UnauthorizedException;
+import com.example.todoapp.security.TokenVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/auth")
@@ -22,11 +28,20 @@ public class AuthController {
     private final UserRepository userRepo;
     private final PasswordEncoder encoder;
     private final JwtUtil jwtUtil;
+    private final TokenVersions tokenVersions;
 
-    public AuthController(UserRepository userRepo, PasswordEncoder encoder, JwtUtil jwtUtil) {
+    // auth.login.stage{stage=...}: DB lookup vs. BCrypt cost of a login
+    private final Timer loginLookupTimer;
+    private final Timer loginPasswordTimer;
+
+    public AuthController(UserRepository userRepo, PasswordEncoder encoder, JwtUtil jwtUtil,
+                          TokenVersions tokenVersions, MeterRegistry meterRegistry) {
         this.userRepo = userRepo;
         this.encoder = encoder;
         this.jwtUtil = jwtUtil;
+        this.tokenVersions = tokenVersions;
+        this.loginLookupTimer = loginStageTimer(meterRegistry, "user_lookup");
+        this.loginPasswordTimer = loginStageTimer(meterRegistry, "password_match");
     }
 
     @PostMapping("/register")
@@ -52,11 +67,14 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<AuthResponseDTO> login(@RequestBody User req) {
-        return userRepo.findByUsername(req.getUsername())
-                .filter(u -> encoder.matches(req.getPassword(), u.getPassword()))
+        return loginLookupTimer.record(() -> userRepo.findByUsername(req.getUsername()))
+                .filter(u -> loginPasswordTimer.record(() -> encoder.matches(req.getPassword(), u.getPassword())))
                 .map(u -> {
+                    rehashIfWeaker(u, req.getPassword());
+
                     // generate token with single role
-                    String token = jwtUtil.generateToken(u.getUsername(), Set.of(u.getRoles()));
+                    String token = jwtUtil.generateToken(u.getUsername(), Set.of(u.getRoles()), u.getTokenVersion());
+                    tokenVersions.remember(u.getUsername(), u.getTokenVersion());
 
                     ResponseCookie cookie = ResponseCookie.from("JWT", token)
                             .httpOnly(true)
@@ -78,6 +96,23 @@ public class AuthController {
 
     @PostMapping("/logout")
     public ResponseEntity<LogoutResponseDTO> logout() {
+        return clearedCookie("Logged out");
+    }
+
+    // Logs the user out on every device: tokens issued so far stop working. Enforced
+    // right away by this instance only; others learn the new token version when the
+    // user logs in there again (see TokenVersions), until then old tokens last until
+    // they expire.
+    @PostMapping("/logout-all")
+    public ResponseEntity<LogoutResponseDTO> logoutAll(@AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            throw new UnauthorizedException("Not logged in");
+        }
+        tokenVersions.revoke(principal.getUsername());
+        return clearedCookie("Logged out on all devices");
+    }
+
+    private static ResponseEntity<LogoutResponseDTO> clearedCookie(String message) {
         ResponseCookie deleteCookie = ResponseCookie.from("JWT", "")
                 .httpOnly(true)
                 .secure(false)
@@ -88,7 +123,7 @@ public class AuthController {
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.SET_COOKIE, deleteCookie.toString())
-                .body(new LogoutResponseDTO("Logged out"));
+                .body(new LogoutResponseDTO(message));
 
     }
     // endpoint for returning current user
@@ -98,15 +133,33 @@ public class AuthController {
             throw new UnauthorizedException("Not logged in");
         }
 
-        return userRepo.findByUsername(principal.getUsername())
-                .map(u -> ResponseEntity.ok(
-                        new UserDTO(
-                                u.getUsername(),
-                                Set.of(u.getRoles()) // wrap single string into Set
-                        )
-                ))
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
+        // the principal already carries username + roles (from the DB or the token claims)
+        Set<String> roles = principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+
+        return ResponseEntity.ok(new UserDTO(principal.getUsername(), roles));
     }
 
+    // stored hash was made with a lower BCrypt cost than the current one → re-encode while we know the password
+    // (upgrade only: a hash with a higher cost is kept)
+    private void rehashIfWeaker(User user, String rawPassword) {
+        if (!encoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(encoder.encode(rawPassword));
+            userRepo.save(user);
+        } catch (TooManyRequestsException e) {
+            // hashing pool is busy: keep the old hash, the next login tries again
+        }
+    }
 
+    private static Timer loginStageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("auth.login.stage")
+                .description("Time spent per stage of a login request")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
 }
@@ -1,5 +1,7 @@
 package com.example.todoapp;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -15,8 +17,13 @@ import java.util.Set;
 @Component
 public class JwtUtil {
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     private final SecretKey key;
     private final long jwtExpirationMs;
+    // parsers are immutable and thread-safe: build once instead of per call
+    private final JwtParser parser;
 
     public JwtUtil(
             @Value("${jwt.secret:}") String secret,
@@ -29,35 +36,42 @@ public class JwtUtil {
             this.key = Keys.hmacShaKeyFor(secret.getBytes());
         }
         this.jwtExpirationMs = jwtExpirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     public String generateToken(String username, Set<String> roles) {
+        return generateToken(username, roles, 0);
+    }
+
+    public String generateToken(String username, Set<String> roles, int tokenVersion) {
         return Jwts.builder()
                 .setSubject(username)
-                .claim("roles", roles) // always a Set<String>
+                .claim(ROLES_CLAIM, roles) // always a Set<String>
+                .claim(TOKEN_VERSION_CLAIM, tokenVersion)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Verifies the signature and expiry exactly once and hands back every claim;
+    // throws a JwtException (or IllegalArgumentException) for bad tokens
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public String validateTokenAndGetUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
-    @SuppressWarnings("unchecked")
     public Set<String> getRoles(String token) {
-        Object claim = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("roles");
+        return getRoles(parseClaims(token));
+    }
+
+    public static Set<String> getRoles(Claims claims) {
+        Object claim = claims.get(ROLES_CLAIM);
 
         if (claim instanceof String role) {
             return Set.of(role);
@@ -71,12 +85,15 @@ public class JwtUtil {
         return Collections.emptySet();
     }
 
+    // tokens issued before versioning carry no claim and count as version 0
+    public static int getTokenVersion(Claims claims) {
+        Object claim = claims.get(TOKEN_VERSION_CLAIM);
+        return claim instanceof Number n ? n.intValue() : 0;
+    }
+
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -84,11 +101,6 @@ public class JwtUtil {
     }
 
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 }
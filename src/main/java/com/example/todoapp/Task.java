@@ -1,13 +1,22 @@
 package com.example.todoapp;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
+
+import java.time.Instant;
 
 @Entity
 @Table(name = "tasks")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tasks")
 public class Task {
 
+    // pooled sequence ids (blocks of 50) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "tasks_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -16,8 +25,26 @@ public class Task {
     @Column(nullable = false)
     private boolean done = false;
 
+    // set when the task becomes done, cleared when it is reopened (TaskArchiver)
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    // optimistic locking; clients echo it as If-Match (TaskController)
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    // delta sync (GET /tasks/changes): every insert and update draws the next value
+    // of task_change_seq in the statement itself. The "+ 0 * ?" only satisfies
+    // Hibernate's one-placeholder rule; the Java value is never written or refreshed.
+    @Column(name = "change_seq", nullable = false)
+    @ColumnTransformer(write = "nextval('task_change_seq') + 0 * ?")
+    private long changeSeq;
+
     // 🔗 Link to User entity instead of plain string
-    @ManyToOne(fetch = FetchType.LAZY)
+    // optional = false: derived queries inner-join users, so the planner can drive
+    // from users.username into the (user_id, id) index instead of scanning tasks
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false) // foreign key column
     private User user;
 
@@ -35,7 +62,18 @@ public class Task {
     public void setTitle(String title) { this.title = title; }
 
     public boolean isDone() { return done; }
-    public void setDone(boolean done) { this.done = done; }
+    public void setDone(boolean done) {
+        if (done && !this.done) {
+            completedAt = Instant.now();
+        } else if (!done) {
+            completedAt = null;
+        }
+        this.done = done;
+    }
+
+    public Instant getCompletedAt() { return completedAt; }
+
+    public long getVersion() { return version; }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
@@ -0,0 +1,153 @@
+package com.example.todoapp;
+
+import com.example.todoapp.mapper.TaskMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Moves tasks done for longer than tasks.archive.after out of `tasks` into
+// `tasks_archive`, so the hot table and its indexes only carry live work.
+// Chunk by chunk, each its own short transaction: read `chunk-size` candidates
+// past the previous chunk in (completed_at, id) order, insert them into the
+// archive and delete them (JDBC batches; the deletes check the version, so a
+// task reopened meanwhile stays and the chunk rolls back; it is read again, up to
+// `attempts` times, then left to the next run and the run goes on past it), then
+// pause before the next. To the rest of the app an archived task is a deleted one: the counters
+// drop it, delta sync gets a tombstone, the feed and search index a DELETED event.
+@Component
+public class TaskArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskArchiver.class);
+
+    private final TaskRepository taskRepository;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final TaskMapper taskMapper;
+    private final TaskSync taskSync;
+    private final TaskStats taskStats;
+    private final TaskListVersions listVersions;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final Duration after;
+    private final int chunkSize;
+    private final Duration pause;
+    private final int attempts;
+    private final Counter archived;
+    private final Counter skipped;
+
+    public TaskArchiver(TaskRepository taskRepository,
+                        ArchivedTaskRepository archivedTaskRepository,
+                        TaskMapper taskMapper,
+                        TaskSync taskSync,
+                        TaskStats taskStats,
+                        TaskListVersions listVersions,
+                        ApplicationEventPublisher events,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${tasks.archive.after:30d}") Duration after,
+                        @Value("${tasks.archive.chunk-size:200}") int chunkSize,
+                        @Value("${tasks.archive.pause:100ms}") Duration pause,
+                        @Value("${tasks.archive.attempts:3}") int attempts) {
+        this.taskRepository = taskRepository;
+        this.archivedTaskRepository = archivedTaskRepository;
+        this.taskMapper = taskMapper;
+        this.taskSync = taskSync;
+        this.taskStats = taskStats;
+        this.listVersions = listVersions;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.after = after;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.attempts = attempts;
+        this.archived = Counter.builder("tasks.archived")
+                .description("Completed tasks moved to tasks_archive")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("tasks.archive.skipped-chunks")
+                .description("Archival chunks left for the next run after repeated concurrent writes")
+                .register(meterRegistry);
+    }
+
+    // returns the number of tasks archived by this run
+    @Scheduled(fixedDelayString = "${tasks.archive.interval:10m}",
+               initialDelayString = "${tasks.archive.interval:10m}")
+    public int archive() {
+        Instant before = Instant.now().minus(after);
+        Instant afterCompletedAt = Instant.EPOCH;
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            Instant fromCompletedAt = afterCompletedAt;
+            long fromId = afterId;
+            List<Task> chunk = null;
+            for (int attempt = 1; chunk == null && attempt <= attempts; attempt++) {
+                try {
+                    chunk = transaction.execute(status -> move(before, fromCompletedAt, fromId));
+                    total += chunk.size();
+                } catch (OptimisticLockingFailureException e) {
+                    // written while we were at it: read the chunk again, a reopened task drops out
+                    log.debug("Archival chunk after task {} ran into a concurrent write (attempt {})",
+                            fromId, attempt, e);
+                }
+            }
+            if (chunk == null) {
+                // keeps losing to writers: the next run takes it, this one goes on past it
+                chunk = taskRepository.findCompletedBefore(before, fromCompletedAt, fromId, Limit.of(chunkSize));
+                skipped.increment();
+                log.info("Skipped archival chunk after task {}, {} attempts ran into concurrent writes",
+                        fromId, attempts);
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            Task last = chunk.get(chunk.size() - 1);
+            afterCompletedAt = last.getCompletedAt();
+            afterId = last.getId();
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        archived.increment(total);
+        return total;
+    }
+
+    private List<Task> move(Instant before, Instant afterCompletedAt, long afterId) {
+        List<Task> tasks = taskRepository.findCompletedBefore(before, afterCompletedAt, afterId, Limit.of(chunkSize));
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        Instant now = Instant.now();
+        archivedTaskRepository.saveAll(tasks.stream().map(task -> new ArchivedTask(task, now)).toList());
+        taskRepository.deleteAll(tasks);
+
+        Map<Long, Long> perUser = new HashMap<>();
+        for (Task task : tasks) {
+            taskSync.recordDelete(task.getId(), task.getUser().getId());
+            perUser.merge(task.getUser().getId(), 1L, Long::sum);
+            listVersions.bump(task.getUser().getUsername());
+            events.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, taskMapper.toDTO(task)));
+        }
+        // all of them were done: leaves today's completions alone
+        perUser.forEach((userId, count) -> taskStats.record(userId, -count, -count, 0));
+        // surface a version conflict here, not at commit
+        taskRepository.flush();
+        return tasks;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+
+// a task row as read by the delta query, with the change_seq it was read at
+public record TaskChange(long changeSeq, Long id, String title, boolean done, String username, long version) {
+
+    public TaskDTO toDTO() {
+        return new TaskDTO(id, title, done, username, version);
+    }
+}
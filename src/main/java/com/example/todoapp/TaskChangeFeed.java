@@ -0,0 +1,258 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process fan-out of committed TaskChangedEvents to SSE subscribers (GET /tasks/stream).
+// Idle subscribers cost an async request and a small queue, no thread: events are
+// serialized once, offered to each matching subscriber's bounded queue, and a few
+// dispatcher threads drain the queues onto the sockets. A subscriber whose queue
+// is full is too slow to keep up and gets disconnected (EventSource reconnects
+// and reloads the list). So does one whose socket stops taking data: a send is a
+// blocking write on a shared dispatcher thread, so one running longer than the
+// write timeout is cut off (emitter failed, thread interrupted) before a few stuck
+// clients can hold every dispatcher thread and stall the feed for everyone.
+@Component
+public class TaskChangeFeed implements DisposableBean {
+
+    // name == null → SSE comment (heartbeat)
+    record Event(String name, String id, String json) {}
+
+    final class Subscriber {
+        private final SseEmitter emitter;
+        private final String owner;
+        private final ArrayBlockingQueue<Event> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // System.nanoTime() when the send in progress started, 0 → none; guarded by this
+        private long sendingSince;
+        private Thread sender;
+
+        private Subscriber(SseEmitter emitter, String owner, int capacity) {
+            this.emitter = emitter;
+            this.owner = owner;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(Event event) {
+            if (!queue.offer(event)) {
+                evicted.increment();
+                disconnect();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    synchronized (this) {
+                        sendingSince = System.nanoTime();
+                        sender = Thread.currentThread();
+                    }
+                    try {
+                        emitter.send(event.name() == null
+                                ? SseEmitter.event().comment(event.json())
+                                : SseEmitter.event().name(event.name()).id(event.id()).data(event.json()));
+                    } catch (IOException | IllegalStateException e) {
+                        // client went away (or the emitter already completed or was cut off)
+                        disconnect();
+                        return;
+                    } finally {
+                        synchronized (this) {
+                            sendingSince = 0;
+                            sender = null;
+                            // an interrupt from cutOff() is meant for this send only
+                            Thread.interrupted();
+                        }
+                    }
+                }
+                scheduled.set(false);
+                // an offer may have slipped in between the last poll and the reset
+            } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        private void disconnect() {
+            unsubscribe(this);
+            queue.clear();
+            emitter.complete();
+        }
+
+        // true if a send has been blocked for longer than the write timeout and was cut off
+        private boolean cutOffIfStalled(long now) {
+            synchronized (this) {
+                if (sendingSince == 0 || now - sendingSince < writeTimeoutNanos) {
+                    return false;
+                }
+                sender.interrupt();
+            }
+            unsubscribe(this);
+            queue.clear();
+            emitter.completeWithError(new IOException("Change-feed write timed out"));
+            return true;
+        }
+    }
+
+    private final Set<Subscriber> admins = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> byOwner = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ObjectMapper objectMapper;
+    private final Executor dispatcher;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    private final Counter evicted;
+
+    @Autowired
+    public TaskChangeFeed(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                          @Value("${tasks.stream.queue-capacity:64}") int queueCapacity,
+                          @Value("${tasks.stream.max-subscribers:50000}") int maxSubscribers,
+                          @Value("${tasks.stream.timeout:30m}") Duration timeout,
+                          @Value("${tasks.stream.write-timeout:10s}") Duration writeTimeout,
+                          @Value("${tasks.stream.dispatch-threads:2}") int dispatchThreads) {
+        this(objectMapper, meterRegistry, queueCapacity, maxSubscribers, timeout, writeTimeout,
+                Executors.newFixedThreadPool(dispatchThreads, r -> {
+                    Thread t = new Thread(r, "task-feed-dispatch");
+                    t.setDaemon(true);
+                    return t;
+                }));
+    }
+
+    TaskChangeFeed(ObjectMapper objectMapper, MeterRegistry meterRegistry, int queueCapacity,
+                   int maxSubscribers, Duration timeout, Duration writeTimeout, Executor dispatcher) {
+        this.objectMapper = objectMapper;
+        this.dispatcher = dispatcher;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        Gauge.builder("tasks.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open task change-feed connections")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("tasks.stream.evicted")
+                .description("Change-feed subscribers disconnected for falling behind or a stalled write")
+                .register(meterRegistry);
+    }
+
+    // owner == null → every task (admins); null result → at capacity
+    public SseEmitter subscribe(String owner) {
+        return subscribe(owner, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(String owner, SseEmitter emitter) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(emitter, owner, queueCapacity);
+        if (owner == null) {
+            admins.add(subscriber);
+        } else {
+            byOwner.compute(owner, (k, set) -> {
+                Set<Subscriber> owned = set != null ? set : ConcurrentHashMap.newKeySet();
+                owned.add(subscriber);
+                return owned;
+            });
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(subscriber::disconnect);
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        // flush the response headers right away
+        subscriber.offer(new Event(null, null, "connected"));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent change) throws JsonProcessingException {
+        Event event = new Event(change.type().name().toLowerCase(Locale.ROOT),
+                String.valueOf(sequence.incrementAndGet()),
+                objectMapper.writeValueAsString(change.task()));
+
+        Set<Subscriber> owners = byOwner.get(change.owner());
+        if (owners != null) {
+            owners.forEach(s -> s.offer(event));
+        }
+        admins.forEach(s -> s.offer(event));
+    }
+
+    // keeps proxies from closing idle streams and finds dead connections
+    @Scheduled(fixedDelayString = "${tasks.stream.heartbeat:25s}")
+    public void heartbeat() {
+        Event ping = new Event(null, null, "ping");
+        admins.forEach(s -> s.offer(ping));
+        byOwner.values().forEach(set -> set.forEach(s -> s.offer(ping)));
+    }
+
+    // checked every write timeout, so a stalled send is cut off within twice that
+    @Scheduled(fixedDelayString = "${tasks.stream.write-timeout:10s}")
+    public void cutOffStalledWrites() {
+        long now = System.nanoTime();
+        admins.forEach(s -> cutOff(s, now));
+        byOwner.values().forEach(set -> set.forEach(s -> cutOff(s, now)));
+    }
+
+    private void cutOff(Subscriber subscriber, long now) {
+        if (subscriber.cutOffIfStalled(now)) {
+            evicted.increment();
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    @Override
+    public void destroy() {
+        admins.forEach(Subscriber::disconnect);
+        byOwner.values().forEach(set -> set.forEach(Subscriber::disconnect));
+        if (dispatcher instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        AtomicBoolean removed = new AtomicBoolean();
+        if (subscriber.owner == null) {
+            removed.set(admins.remove(subscriber));
+        } else {
+            // compute() so an emptied set can't be dropped while another subscribe adds to it
+            byOwner.computeIfPresent(subscriber.owner, (k, set) -> {
+                removed.set(set.remove(subscriber));
+                return set.isEmpty() ? null : set;
+            });
+        }
+        if (removed.get()) {
+            subscribers.decrementAndGet();
+        }
+    }
+}
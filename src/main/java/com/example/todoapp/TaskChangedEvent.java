@@ -0,0 +1,19 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+
+// Published by TaskController (and TaskWriteBehind) for every task write. Listeners that keep derived
+// state (search index, ...) use @TransactionalEventListener(fallbackExecution = true)
+// so they only see writes that actually committed.
+public record TaskChangedEvent(Type type, TaskDTO task) {
+
+    public enum Type { CREATED, UPDATED, TOGGLED, DELETED }
+
+    public Long taskId() {
+        return task.getId();
+    }
+
+    public String owner() {
+        return task.getUsername();
+    }
+}
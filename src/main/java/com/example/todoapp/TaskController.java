@@ -1,54 +1,240 @@
 package com.example.todoapp;
 
+import com.example.todoapp.dto.ArchivedTaskDTO;
+import com.example.todoapp.dto.TaskChangesDTO;
 import com.example.todoapp.dto.TaskDTO;
+import com.example.todoapp.dto.TaskStatsDTO;
 import com.example.todoapp.dto.CreateTaskRequest;
+import com.example.todoapp.dto.TaskStatusUpdate;
 import com.example.todoapp.dto.UpdateTaskStatusRequest;
 import com.example.todoapp.exception.ForbiddenException;
+import com.example.todoapp.exception.GoneException;
+import com.example.todoapp.exception.NotFoundException;
+import com.example.todoapp.exception.PreconditionFailedException;
 import com.example.todoapp.mapper.TaskMapper;
+import com.example.todoapp.search.TaskSearch;
+import com.example.todoapp.shard.ShardedTasks;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final TaskMapper taskMapper;
+    private final TaskListVersions listVersions;
+    private final TaskSearch taskSearch;
+    private final ApplicationEventPublisher events;
+    private final TaskSync taskSync;
+    private final TaskStats taskStats;
+    private final TaskWriteBehind writeBehind;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    // null unless shards.enabled: tasks then live on the shards, not in TaskRepository
+    private final ShardedTasks shards;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxBatchSize;
+    private final int defaultSearchSize;
+    private final int maxSearchSize;
+    private final int defaultSyncSize;
+    private final int maxSyncSize;
+    private final int maxStatsDays;
 
     public TaskController(TaskRepository taskRepository,
                           UserRepository userRepository,
-                          TaskMapper taskMapper) {
+                          TaskMapper taskMapper,
+                          TaskListVersions listVersions,
+                          TaskSearch taskSearch,
+                          ApplicationEventPublisher events,
+                          TaskSync taskSync,
+                          TaskStats taskStats,
+                          TaskWriteBehind writeBehind,
+                          ArchivedTaskRepository archivedTaskRepository,
+                          ObjectProvider<ShardedTasks> shards,
+                          @Value("${tasks.page.default-size:50}") int defaultPageSize,
+                          @Value("${tasks.page.max-size:200}") int maxPageSize,
+                          @Value("${tasks.batch.max-size:500}") int maxBatchSize,
+                          @Value("${tasks.search.default-size:20}") int defaultSearchSize,
+                          @Value("${tasks.search.max-size:100}") int maxSearchSize,
+                          @Value("${tasks.sync.default-size:500}") int defaultSyncSize,
+                          @Value("${tasks.sync.max-size:1000}") int maxSyncSize,
+                          @Value("${tasks.stats.max-days:366}") int maxStatsDays) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
         this.taskMapper = taskMapper;
+        this.listVersions = listVersions;
+        this.taskSearch = taskSearch;
+        this.events = events;
+        this.taskSync = taskSync;
+        this.taskStats = taskStats;
+        this.writeBehind = writeBehind;
+        this.archivedTaskRepository = archivedTaskRepository;
+        this.shards = shards.getIfAvailable();
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.defaultSearchSize = defaultSearchSize;
+        this.maxSearchSize = maxSearchSize;
+        this.defaultSyncSize = defaultSyncSize;
+        this.maxSyncSize = maxSyncSize;
+        this.maxStatsDays = maxStatsDays;
     }
 
-    // Get tasks (users see only their own, admins see all)
+    // Get tasks (users see only their own, admins see all), one keyset page at a time.
+    // Conditional: a matching If-None-Match is answered with 304 before any query runs.
     @GetMapping
-    public List<TaskDTO> getTasks(Authentication auth) {
+    public ResponseEntity<List<TaskDTO>> getTasks(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  Authentication auth,
+                                                  WebRequest webRequest) {
         boolean isAdmin = auth.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .anyMatch(r -> r.equals("ROLE_ADMIN"));
 
-        List<Task> tasks = isAdmin
-                ? taskRepository.findAll()
-                : taskRepository.findByUserUsername(auth.getName()); // 👈 updated repo method
+        long afterId = TaskCursor.decode(after);
+        int pageSize = (limit == null || limit <= 0) ? defaultPageSize : Math.min(limit, maxPageSize);
 
-        return tasks.stream()
-                .map(taskMapper::toDTO)
-                .toList();
+        // version is read before the query: a concurrent write can only make the ETag older than the rows
+        // (per instance: needs a single instance or sticky sessions, see TaskListVersions)
+        String etag = listVersions.etag(auth.getName(), isAdmin, afterId, pageSize);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        // fetch one extra row to learn whether another page exists
+        Limit fetch = Limit.of(pageSize + 1);
+        List<TaskDTO> tasks;
+        if (shards != null) {
+            tasks = isAdmin
+                    ? shards.findPage(afterId, fetch.max())
+                    : shards.findPageByOwner(currentUser(auth), afterId, fetch.max());
+        } else {
+            tasks = isAdmin
+                    ? taskRepository.findPage(afterId, fetch)
+                    : taskRepository.findPageByUsername(auth.getName(), afterId, fetch);
+        }
+
+        boolean hasMore = tasks.size() > pageSize;
+        // the caller's own toggles still waiting for the write-behind flush
+        List<TaskDTO> page = writeBehind.overlay(hasMore ? tasks.subList(0, pageSize) : tasks, auth.getName());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                // JSON, CBOR or Smile depending on Accept (BinaryFormatsConfig)
+                .varyBy(HttpHeaders.COOKIE, HttpHeaders.ACCEPT);
+        if (hasMore) {
+            response.header(NEXT_CURSOR_HEADER, TaskCursor.encode(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    // Completed tasks moved out by TaskArchiver: same visibility and keyset paging as
+    // getTasks, read from tasks_archive only
+    @GetMapping("/archive")
+    public ResponseEntity<List<ArchivedTaskDTO>> getArchivedTasks(@RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+
+        long afterId = TaskCursor.decode(after);
+        int pageSize = (limit == null || limit <= 0) ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ArchivedTaskDTO> tasks = isAdmin
+                ? archivedTaskRepository.findPage(afterId, fetch)
+                : archivedTaskRepository.findPageByUsername(auth.getName(), afterId, fetch);
+
+        boolean hasMore = tasks.size() > pageSize;
+        List<ArchivedTaskDTO> page = hasMore ? tasks.subList(0, pageSize) : tasks;
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (hasMore) {
+            response.header(NEXT_CURSOR_HEADER, TaskCursor.encode(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    // Ranked title search (Postgres full-text or the in-memory index), same visibility as getTasks
+    @GetMapping("/search")
+    public List<TaskDTO> searchTasks(@RequestParam String q,
+                                     @RequestParam(required = false) Integer limit,
+                                     Authentication auth) {
+        if (q.isBlank()) {
+            throw new RuntimeException("Search query must not be empty");
+        }
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+        int size = (limit == null || limit <= 0) ? defaultSearchSize : Math.min(limit, maxSearchSize);
+
+        return taskSearch.search(q, isAdmin ? null : auth.getName(), size);
+    }
+
+    // Delta sync: tasks written and ids deleted since the client's token, same visibility
+    // as getTasks. No token → everything. 410 → token older than the tombstone horizon.
+    @GetMapping("/changes")
+    public TaskChangesDTO getChanges(@RequestParam(required = false) String since,
+                                     @RequestParam(required = false) Integer limit,
+                                     Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+        int size = (limit == null || limit <= 0) ? defaultSyncSize : Math.min(limit, maxSyncSize);
+        if (shards != null) {
+            // change_seq is not kept on the shards; a 410 sends clients to a full reload
+            throw new GoneException("Delta sync is not available with sharded task storage, reload all tasks");
+        }
+
+        return taskSync.changes(since, isAdmin ? null : auth.getName(), size);
+    }
+
+    // Counts for dashboards from the task_stats counters: admins get every user plus
+    // the global totals, users only themselves. Daily completions for the last `days` days.
+    @GetMapping("/stats")
+    public TaskStatsDTO getStats(@RequestParam(defaultValue = "30") int days, Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+
+        return taskStats.read(isAdmin ? null : auth.getName(), Math.max(1, Math.min(days, maxStatsDays)));
     }
 
     // Add task → always linked to logged-in user
     @PostMapping
+    @Transactional
     public TaskDTO addTask(@Valid @RequestBody CreateTaskRequest req, Authentication auth) {
-        User user = userRepository.findByUsername(auth.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser(auth);
+        if (shards != null) {
+            TaskDTO created = shards.insert(user, List.of(req)).get(0);
+            int done = req.isDone() ? 1 : 0;
+            taskStats.record(user.getId(), 1, done, done);
+            listVersions.bump(user.getUsername());
+            return published(TaskChangedEvent.Type.CREATED, created);
+        }
 
         Task task = new Task();
         task.setTitle(req.getTitle());
@@ -56,64 +242,255 @@ public class TaskController {
         task.setUser(user);
 
         Task saved = taskRepository.save(task);
-        return taskMapper.toDTO(saved);
+        int done = req.isDone() ? 1 : 0;
+        taskStats.record(user.getId(), 1, done, done);
+        listVersions.bump(user.getUsername());
+        return published(TaskChangedEvent.Type.CREATED, taskMapper.toDTO(saved));
     }
 
-    // Update task → only owner or admin
-    @PutMapping("/{id}")
-    public TaskDTO updateTask(@PathVariable Long id,
-                              @Valid @RequestBody CreateTaskRequest req,
-                              Authentication auth) {
-        return taskRepository.findById(id).map(task -> {
-            boolean isAdmin = auth.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .anyMatch(r -> r.equals("ROLE_ADMIN"));
+    // Bulk add → one user lookup for the whole batch, inserts go out as JDBC batches
+    @PostMapping("/batch")
+    @Transactional
+    public List<TaskDTO> addTasks(@RequestBody List<@Valid CreateTaskRequest> reqs, Authentication auth) {
+        checkBatchSize(reqs.size());
+        User user = currentUser(auth);
+        if (shards != null) {
+            List<TaskDTO> created = shards.insert(user, reqs).stream()
+                    .map(dto -> published(TaskChangedEvent.Type.CREATED, dto))
+                    .toList();
+            long done = reqs.stream().filter(CreateTaskRequest::isDone).count();
+            taskStats.record(user.getId(), reqs.size(), done, done);
+            listVersions.bump(user.getUsername());
+            return created;
+        }
+
+        List<Task> tasks = reqs.stream().map(req -> {
+            Task task = new Task(req.getTitle(), user);
+            task.setDone(req.isDone());
+            return task;
+        }).toList();
+
+        List<TaskDTO> saved = taskRepository.saveAll(tasks).stream()
+                .map(taskMapper::toDTO)
+                .map(dto -> published(TaskChangedEvent.Type.CREATED, dto))
+                .toList();
+        long done = tasks.stream().filter(Task::isDone).count();
+        taskStats.record(user.getId(), tasks.size(), done, done);
+        listVersions.bump(user.getUsername());
+        return saved;
+    }
+
+    // Bulk done/undone → all-or-nothing: one select, batched updates on commit
+    @PatchMapping("/batch/done")
+    @Transactional
+    public List<TaskDTO> toggleDoneBatch(@RequestBody List<@Valid TaskStatusUpdate> reqs, Authentication auth) {
+        checkBatchSize(reqs.size());
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
 
+        List<Long> ids = reqs.stream().map(TaskStatusUpdate::getId).toList();
+        if (shards != null) {
+            return toggleDoneBatchSharded(reqs, ids, isAdmin, auth);
+        }
+        writeBehind.flush(ids);
+        Map<Long, Task> tasks = taskRepository.findAllWithUserByIdIn(ids).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+
+        Map<Long, Long> doneDeltas = new HashMap<>();
+        List<Task> updated = reqs.stream().map(req -> {
+            Task task = tasks.get(req.getId());
+            if (task == null) {
+                throw new RuntimeException("Task not found with id " + req.getId());
+            }
             if (!isAdmin && !task.getUser().getUsername().equals(auth.getName())) {
                 throw new ForbiddenException("You are not allowed to update this task");
             }
-
-            task.setTitle(req.getTitle());
+            if (task.isDone() != req.isDone()) {
+                doneDeltas.merge(task.getUser().getId(), req.isDone() ? 1L : -1L, Long::sum);
+            }
             task.setDone(req.isDone());
+            listVersions.bump(task.getUser().getUsername());
+            return task;
+        }).toList();
+        // one counter update per owner, not per task
+        doneDeltas.forEach((userId, delta) -> taskStats.record(userId, 0, delta, delta));
 
-            Task updated = taskRepository.save(task);
-            return taskMapper.toDTO(updated);
-        }).orElseThrow(() -> new RuntimeException("Task not found with id " + id));
+        // flush (still one JDBC batch) so the returned versions are the ones written
+        taskRepository.flush();
+        return updated.stream()
+                .map(task -> published(TaskChangedEvent.Type.TOGGLED, taskMapper.toDTO(task)))
+                .toList();
     }
 
-    // Delete task → only admin (already enforced in SecurityConfig)
+    // Update task → only owner or admin. One conditional UPDATE: ownership and the
+    // optional If-Match version are part of its WHERE clause, the new row comes back
+    // from the same statement (see TaskRepositoryCustom).
+    @PutMapping("/{id}")
+    @Transactional
+    public ResponseEntity<TaskDTO> updateTask(@PathVariable Long id,
+                                              @Valid @RequestBody CreateTaskRequest req,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+
+        writeBehind.flush(List.of(id));
+        TaskRow updated = (shards != null
+                ? shards.updateIfMatches(id, isAdmin ? null : currentUser(auth),
+                        expectedVersion(ifMatch), req.getTitle(), req.isDone())
+                : taskRepository.updateIfMatches(id, isAdmin ? null : auth.getName(),
+                        expectedVersion(ifMatch), req.getTitle(), req.isDone()))
+                .orElseThrow(() -> rejected(id, auth.getName(), isAdmin, "update"));
+
+        recordDoneChange(updated);
+        listVersions.bump(updated.username());
+        return versioned(published(TaskChangedEvent.Type.UPDATED, updated.toDTO()));
+    }
+
+    // Delete task → only admin (already enforced in SecurityConfig); the tombstone
+    // for delta sync commits with the delete
     @DeleteMapping("/{id}")
-    public void deleteTask(@PathVariable Long id, Authentication auth) {
-        taskRepository.findById(id).ifPresent(task -> {
-            boolean isAdmin = auth.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .anyMatch(r -> r.equals("ROLE_ADMIN"));
+    @Transactional
+    public void deleteTask(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                           Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
 
-            if (!isAdmin && !task.getUser().getUsername().equals(auth.getName())) {
-                throw new ForbiddenException("You are not allowed to delete this task");
-            }
+        writeBehind.flush(List.of(id));
+        TaskRow deleted = (shards != null
+                ? shards.deleteIfMatches(id, isAdmin ? null : currentUser(auth), expectedVersion(ifMatch))
+                : taskRepository.deleteIfMatches(id, isAdmin ? null : auth.getName(), expectedVersion(ifMatch)))
+                .orElseThrow(() -> rejected(id, auth.getName(), isAdmin, "delete"));
 
-            taskRepository.delete(task);
-        });
+        taskSync.recordDelete(deleted.id(), deleted.userId());
+        taskStats.record(deleted.userId(), -1, deleted.done() ? -1 : 0, 0);
+        listVersions.bump(deleted.username());
+        published(TaskChangedEvent.Type.DELETED, deleted.toDTO());
     }
+
+    // With write-behind on and no If-Match: access is checked, the new state queued
+    // and 202 returned with the task as it will be (no ETag, the version is not known
+    // yet). Conditional toggles need the real version, so they are written right away.
     @PatchMapping("/{id}/done")
-    public TaskDTO toggleDone(@PathVariable Long id,
-                              @RequestBody UpdateTaskStatusRequest req,
-                              Authentication auth) {
-        return taskRepository.findById(id).map(task -> {
-            boolean isAdmin = auth.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .anyMatch(r -> r.equals("ROLE_ADMIN"));
+    @Transactional
+    public ResponseEntity<TaskDTO> toggleDone(@PathVariable Long id,
+                                              @RequestBody UpdateTaskStatusRequest req,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
 
-            if (!isAdmin && !task.getUser().getUsername().equals(auth.getName())) {
+        // (not with shards: the flush writes through TaskRepository)
+        if (writeBehind.enabled() && ifMatch == null && shards == null) {
+            TaskRow current = taskRepository.findRowById(id)
+                    .orElseThrow(() -> new NotFoundException("Task not found with id " + id));
+            if (!isAdmin && !current.username().equals(auth.getName())) {
                 throw new ForbiddenException("You are not allowed to update this task");
             }
+            writeBehind.enqueue(current, req.isDone(), auth.getName());
+            return ResponseEntity.accepted().body(new TaskDTO(current.id(), current.title(), req.isDone(),
+                    current.username(), current.version()));
+        }
 
-            task.setDone(req.isDone());
-            Task updated = taskRepository.save(task);
-            return taskMapper.toDTO(updated);
-        }).orElseThrow(() -> new RuntimeException("Task not found with id " + id));
+        writeBehind.flush(List.of(id));
+        TaskRow updated = (shards != null
+                ? shards.setDoneIfMatches(id, isAdmin ? null : currentUser(auth), expectedVersion(ifMatch), req.isDone())
+                : taskRepository.setDoneIfMatches(id, isAdmin ? null : auth.getName(),
+                        expectedVersion(ifMatch), req.isDone()))
+                .orElseThrow(() -> rejected(id, auth.getName(), isAdmin, "update"));
+
+        recordDoneChange(updated);
+        listVersions.bump(updated.username());
+        return versioned(published(TaskChangedEvent.Type.TOGGLED, updated.toDTO()));
+    }
+
+    // Sharded batch: the rows come from every shard that has one of the ids, the
+    // writes go to each owner's shard (see ShardedTasks.setDoneAll)
+    private List<TaskDTO> toggleDoneBatchSharded(List<TaskStatusUpdate> reqs, List<Long> ids,
+                                                 boolean isAdmin, Authentication auth) {
+        Map<Long, TaskRow> rows = shards.findRowsById(ids);
+        Map<Long, Boolean> done = new HashMap<>();
+        for (TaskStatusUpdate req : reqs) {
+            TaskRow row = rows.get(req.getId());
+            if (row == null) {
+                throw new RuntimeException("Task not found with id " + req.getId());
+            }
+            if (!isAdmin && !row.username().equals(auth.getName())) {
+                throw new ForbiddenException("You are not allowed to update this task");
+            }
+            done.put(req.getId(), req.isDone());
+        }
+
+        Map<Long, TaskRow> written = new HashMap<>();
+        Map<Long, Long> doneDeltas = new HashMap<>();
+        for (TaskRow row : shards.setDoneAll(rows.values(), done)) {
+            written.put(row.id(), row);
+            doneDeltas.merge(row.userId(), row.done() ? 1L : -1L, Long::sum);
+        }
+        doneDeltas.forEach((userId, delta) -> taskStats.record(userId, 0, delta, delta));
+        rows.values().forEach(row -> listVersions.bump(row.username()));
+        return reqs.stream()
+                .map(req -> written.getOrDefault(req.getId(), rows.get(req.getId())).toDTO())
+                .map(task -> published(TaskChangedEvent.Type.TOGGLED, task))
+                .toList();
+    }
+
+    private User currentUser(Authentication auth) {
+        return userRepository.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    // If-Match: "<version>" as sent in the ETag of a task response; absent or * → any version
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a single task ETag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match must be a single task ETag");
+        }
     }
 
+    private void recordDoneChange(TaskRow row) {
+        if (row.done() != row.wasDone()) {
+            long delta = row.done() ? 1 : -1;
+            taskStats.record(row.userId(), 0, delta, delta);
+        }
+    }
+
+    private static ResponseEntity<TaskDTO> versioned(TaskDTO task) {
+        return ResponseEntity.ok().eTag("\"" + task.getVersion() + "\"").body(task);
+    }
 
+    // Only runs when the conditional write matched nothing: one lookup tells why
+    private RuntimeException rejected(Long id, String username, boolean isAdmin, String action) {
+        return (shards != null ? shards.findRowById(id) : taskRepository.findRowById(id))
+                .<RuntimeException>map(current -> !isAdmin && !current.username().equals(username)
+                        ? new ForbiddenException("You are not allowed to " + action + " this task")
+                        : new PreconditionFailedException("Task " + id + " has changed, current version is "
+                                + current.version()))
+                .orElseGet(() -> new NotFoundException("Task not found with id " + id));
+    }
+
+    // listeners run after commit, or right away when there is no transaction
+    private TaskDTO published(TaskChangedEvent.Type type, TaskDTO task) {
+        events.publishEvent(new TaskChangedEvent(type, task));
+        return task;
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new RuntimeException("Batch too large (max " + maxBatchSize + " items)");
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package com.example.todoapp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory versions of the task collections served by GET /tasks: a global
+// counter for the admin view, and per owner the global version of their last
+// write. Every write bumps the global counter and stamps the owner, whoever
+// performs it, so admins editing someone else's task invalidate that user's
+// ETag too. Reads are a single cache lookup. Owners are kept up to
+// tasks.etag.max-users, and dropped after tasks.etag.idle without a read or
+// write; a dropped owner reads as the global version, which no write of theirs
+// was stamped past, so their old ETags never match later data (an idle user's
+// first request after that may miss a 304). Counters restart at 0 on boot; the
+// random epoch baked into every ETag keeps old ETags from matching after a restart.
+//
+// All of this lives in one instance's memory and only sees the writes that
+// instance handled. Behind a load balancer, a write served by another instance
+// leaves this one's ETag unchanged and its 304s stale. The ETags are only right
+// with a single instance, or with each user kept on one instance (sticky
+// sessions); even then an admin's list misses writes made on other instances.
+@Component
+public class TaskListVersions {
+
+    private final long epoch = ThreadLocalRandom.current().nextLong() >>> 1;
+    private final Cache<String, Long> perUser;
+    private final AtomicLong global = new AtomicLong();
+
+    @Autowired
+    public TaskListVersions(@Value("${tasks.etag.max-users:100000}") long maxUsers,
+                            @Value("${tasks.etag.idle:1h}") Duration idle) {
+        this(maxUsers, idle, Ticker.systemTicker());
+    }
+
+    TaskListVersions(long maxUsers, Duration idle, Ticker ticker) {
+        this.perUser = Caffeine.newBuilder()
+                .expireAfterAccess(idle)
+                .maximumSize(maxUsers)
+                .ticker(ticker)
+                .build();
+    }
+
+    public long ofUser(String username) {
+        Long version = perUser.getIfPresent(username);
+        return version == null ? ofAll() : version;
+    }
+
+    public long ofAll() {
+        return global.get();
+    }
+
+    public String etag(String username, boolean admin, long afterId, int pageSize) {
+        String scope = admin ? "all-" + ofAll() : Integer.toHexString(username.hashCode()) + "-" + ofUser(username);
+        return "\"" + Long.toString(epoch, 36) + "-" + scope + "-" + afterId + "-" + pageSize + "\"";
+    }
+
+    // Bumps now and, inside a transaction, once more after commit: a read that
+    // slips in before the commit may pair the first bump with old rows, the
+    // second bump makes sure that ETag never validates again
+    public void bump(String owner) {
+        increment(owner);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(owner);
+                }
+            });
+        }
+    }
+
+    private void increment(String owner) {
+        perUser.asMap().merge(owner, global.incrementAndGet(), Math::max);
+    }
+}
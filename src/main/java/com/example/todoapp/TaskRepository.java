@@ -1,10 +1,110 @@
 package com.example.todoapp;
 
+import com.example.todoapp.dto.TaskDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+// conditional single-statement writes come from TaskRepositoryCustom
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskRepositoryCustom {
+
+    // Task lists go through the query cache ("task-lists" region). Hibernate drops
+    // cached results whenever the tasks/users tables are written through it, so any
+    // TaskController write invalidates them on commit. They run as read-only
+    // transactions, so with a replica configured they are served from it.
 
     // Spring Data JPA will join Task.user.username automatically
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "task-lists")
+    })
+    @Transactional(readOnly = true)
     List<Task> findByUserUsername(String username);
+
+    // Keyset pages: seek past the last seen id instead of OFFSET, so every page
+    // is an index range scan on (user_id, id) no matter how deep the client is.
+    // Rows come back as DTOs from one joined select: no Task/User entities are
+    // hydrated or dirty-checked, and no lazy user load per row (N+1).
+    @Query("""
+            select new com.example.todoapp.dto.TaskDTO(t.id, t.title, t.done, u.username, t.version)
+            from Task t join t.user u
+            where u.username = :username and t.id > :after
+            order by t.id""")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "task-lists")
+    })
+    @Transactional(readOnly = true)
+    List<TaskDTO> findPageByUsername(String username, long after, Limit limit);
+
+    @Query("""
+            select new com.example.todoapp.dto.TaskDTO(t.id, t.title, t.done, u.username, t.version)
+            from Task t join t.user u
+            where t.id > :after
+            order by t.id""")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "task-lists")
+    })
+    @Transactional(readOnly = true)
+    List<TaskDTO> findPage(long after, Limit limit);
+
+    // uncached full walk in id order, for building the in-memory search index
+    @Query("""
+            select new com.example.todoapp.dto.TaskDTO(t.id, t.title, t.done, u.username, t.version)
+            from Task t join t.user u
+            where t.id > :after
+            order by t.id""")
+    List<TaskDTO> findBatchForIndexing(long after, Limit limit);
+
+    // Delta sync: rows written after a change_seq, in change_seq order. Uncached on
+    // purpose; the (user_id, change_seq) / (change_seq) indexes keep the cost
+    // proportional to the delta.
+    @Query("""
+            select new com.example.todoapp.TaskChange(t.changeSeq, t.id, t.title, t.done, u.username, t.version)
+            from Task t join t.user u
+            where u.username = :username and t.changeSeq > :after
+            order by t.changeSeq""")
+    List<TaskChange> findChangesByUsername(String username, long after, Limit limit);
+
+    // left join (every task has a user, so same rows): keeps tasks as the driving
+    // table, walked in change_seq index order, with one users PK lookup per row
+    @Query("""
+            select new com.example.todoapp.TaskChange(t.changeSeq, t.id, t.title, t.done, u.username, t.version)
+            from Task t left join t.user u
+            where t.changeSeq > :after
+            order by t.changeSeq""")
+    List<TaskChange> findChanges(long after, Limit limit);
+
+    @Query("select coalesce(max(t.changeSeq), 0) from Task t")
+    long maxChangeSeq();
+
+    // why a conditional write matched nothing: gone, someone else's, or another version
+    @Query("""
+            select new com.example.todoapp.TaskRow(t.id, t.title, t.done, t.version, u.id, u.username, t.done)
+            from Task t join t.user u
+            where t.id = :id""")
+    Optional<TaskRow> findRowById(long id);
+
+    // Archival candidates, oldest completion first: a seek on (completed_at, id) past
+    // the end of the previous chunk, owners fetched in the same select (left join, so
+    // tasks stay the driving table, as in findChanges)
+    @Query("""
+            select t from Task t left join fetch t.user
+            where t.done = true and t.completedAt < :before
+              and (t.completedAt > :afterCompletedAt or (t.completedAt = :afterCompletedAt and t.id > :afterId))
+            order by t.completedAt, t.id""")
+    List<Task> findCompletedBefore(Instant before, Instant afterCompletedAt, long afterId, Limit limit);
+
+    // owners fetched in the same select, for ownership checks on bulk writes
+    @Query("select t from Task t join fetch t.user where t.id in :ids")
+    List<Task> findAllWithUserByIdIn(Collection<Long> ids);
 }
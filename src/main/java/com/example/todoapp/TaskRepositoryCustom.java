@@ -0,0 +1,25 @@
+package com.example.todoapp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Single-statement writes: the ownership and version checks are part of the WHERE
+// clause and the written row comes back from the same statement.
+// owner == null → any owner (admins); version == null → any version (no If-Match).
+// Empty → no row matched; TaskController.rejected looks the task up with
+// TaskRepository.findRowById to tell missing (404), someone else's (403) and
+// another version (412) apart.
+public interface TaskRepositoryCustom {
+
+    Optional<TaskRow> updateIfMatches(long id, String owner, Long version, String title, boolean done);
+
+    Optional<TaskRow> setDoneIfMatches(long id, String owner, Long version, boolean done);
+
+    Optional<TaskRow> deleteIfMatches(long id, String owner, Long version);
+
+    // Done flags for many tasks (no ownership or version checks, callers did those):
+    // one JDBC batch, rows already in the requested state are left alone. Returns
+    // the rows that changed.
+    List<TaskRow> setDoneAll(Map<Long, Boolean> done);
+}
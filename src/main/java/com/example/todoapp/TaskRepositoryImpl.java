@@ -0,0 +1,218 @@
+package com.example.todoapp;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// One round trip per write where the database can return the written row:
+//   PostgreSQL → UPDATE/DELETE ... RETURNING
+//   H2         → SELECT ... FROM FINAL TABLE (UPDATE ...) / OLD TABLE (DELETE ...)
+//   others     → a locking select, then the write
+// Tests run on H2; the PostgreSQL statements are pinned by TaskRepositoryImplTest
+// but not executed in the build.
+// The statements bypass the persistence context, so they keep the rest in step
+// themselves: version + 1, a fresh change_seq (delta sync), and the task's
+// second-level cache entry plus the "tasks" query-cache timestamp.
+class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    private static final String[] TASKS_SPACE = {"tasks"};
+    private static final String ROW = "t.id, t.title, t.done, t.version, t.user_id, u.username";
+    private static final String DELTA_ROW = "f.id, f.title, f.done, f.version, f.user_id, u.username";
+    private static final String OWNED_BY = "t.user_id = (select id from users where username = :owner)";
+    private static final String BUMP = "version = t.version + 1, change_seq = nextval('task_change_seq')";
+    // completed_at follows done (archival); a done task written again keeps its time
+    private static final String COMPLETED =
+            "completed_at = case when :done then coalesce(t.completed_at, current_timestamp) end";
+
+    private enum Returning { RETURNING, DELTA_TABLE, NONE }
+
+    private final EntityManager entityManager;
+
+    TaskRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public Optional<TaskRow> updateIfMatches(long id, String owner, Long version, String title, boolean done) {
+        return update(id, owner, version, title, done);
+    }
+
+    @Override
+    @Transactional
+    public Optional<TaskRow> setDoneIfMatches(long id, String owner, Long version, boolean done) {
+        return update(id, owner, version, null, done);
+    }
+
+    @Override
+    @Transactional
+    public Optional<TaskRow> deleteIfMatches(long id, String owner, Long version) {
+        String where = where(owner, version);
+        Optional<TaskRow> row = switch (returning()) {
+            case RETURNING -> single(query("delete from tasks t using users u where u.id = t.user_id and "
+                    + where.replace(OWNED_BY, "u.username = :owner") + " returning " + ROW + ", t.done",
+                    id, owner, version));
+            case DELTA_TABLE -> single(query("select " + DELTA_ROW + ", f.done from old table (delete from tasks t where "
+                    + where + ") f join users u on u.id = f.user_id", id, owner, version));
+            case NONE -> {
+                Optional<TaskRow> before = single(query("select " + ROW + ", t.done"
+                        + " from tasks t join users u on u.id = t.user_id where " + where, id, owner, version));
+                yield before.isPresent() && query("delete from tasks t where " + where, id, owner, version)
+                        .executeUpdate() == 1 ? before : Optional.empty();
+            }
+        };
+        row.ifPresent(r -> evict(id));
+        return row;
+    }
+
+    // The batch can't return rows, but a row it changed was in the other state before,
+    // so one select afterwards gives the written rows in full
+    @Override
+    @Transactional
+    public List<TaskRow> setDoneAll(Map<Long, Boolean> done) {
+        List<Long> ids = new ArrayList<>(done.keySet());
+        List<Long> changed = new ArrayList<>();
+        entityManager.unwrap(SessionImplementor.class).doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement("update tasks t set done = ?, "
+                    + COMPLETED.replace(":done", "?") + ", " + BUMP + " where t.id = ? and t.done <> ?")) {
+                for (Long id : ids) {
+                    update.setBoolean(1, done.get(id));
+                    update.setBoolean(2, done.get(id));
+                    update.setLong(3, id);
+                    update.setBoolean(4, done.get(id));
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        changed.add(ids.get(i));
+                    }
+                }
+            }
+        });
+        if (changed.isEmpty()) {
+            return List.of();
+        }
+        changed.forEach(this::evict);
+        return entityManager.createNativeQuery("select " + ROW + ", not t.done"
+                        + " from tasks t join users u on u.id = t.user_id where t.id in (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Task.class)
+                .setParameter("ids", changed)
+                .getResultList().stream()
+                .map(r -> row((Object[]) r))
+                .toList();
+    }
+
+    // title == null → keep the title
+    private Optional<TaskRow> update(long id, String owner, Long version, String title, boolean done) {
+        String where = where(owner, version);
+        String update = "update tasks t set " + (title == null ? "" : "title = :title, ") + "done = :done, "
+                + COMPLETED + ", " + BUMP;
+        Optional<TaskRow> row = switch (returning()) {
+            // the locked self-join hands back the done flag from before the update
+            case RETURNING -> single(values(query(update
+                    + " from users u, (select id, done from tasks where id = :id for update) o"
+                    + " where u.id = t.user_id and o.id = t.id and " + where.replace(OWNED_BY, "u.username = :owner")
+                    + " returning " + ROW + ", o.done", id, owner, version), title, done));
+            // OLD TABLE gives the row as it was, the new one follows from the SET clause
+            case DELTA_TABLE -> single(values(query("select " + DELTA_ROW + ", f.done from old table (" + update
+                    + " where " + where + ") f join users u on u.id = f.user_id", id, owner, version), title, done))
+                    .map(old -> written(old, title, done));
+            case NONE -> {
+                Optional<TaskRow> before = single(query("select " + ROW + ", t.done"
+                        + " from tasks t join users u on u.id = t.user_id where " + where + " for update",
+                        id, owner, version));
+                before.ifPresent(old -> values(query(update + " where t.id = :id", id, null, null), title, done)
+                        .executeUpdate());
+                yield before.map(old -> written(old, title, done));
+            }
+        };
+        row.ifPresent(r -> evict(id));
+        return row;
+    }
+
+    private static NativeQuery<?> values(NativeQuery<?> query, String title, boolean done) {
+        if (title != null) {
+            query.setParameter("title", title);
+        }
+        return query.setParameter("done", done);
+    }
+
+    private static TaskRow written(TaskRow old, String title, boolean done) {
+        return new TaskRow(old.id(), title != null ? title : old.title(), done, old.version() + 1,
+                old.userId(), old.username(), old.done());
+    }
+
+    private static String where(String owner, Long version) {
+        return "t.id = :id"
+                + (owner == null ? "" : " and " + OWNED_BY)
+                + (version == null ? "" : " and t.version = :version");
+    }
+
+    private NativeQuery<?> query(String sql, long id, String owner, Long version) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        // flush pending Task changes first; no query-cache result depends on this statement
+        query.addSynchronizedEntityClass(Task.class);
+        query.setParameter("id", id);
+        if (owner != null && sql.contains(":owner")) {
+            query.setParameter("owner", owner);
+        }
+        if (version != null && sql.contains(":version")) {
+            query.setParameter("version", version);
+        }
+        return query;
+    }
+
+    private static Optional<TaskRow> single(NativeQuery<?> query) {
+        List<?> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(row((Object[]) rows.get(0)));
+    }
+
+    private static TaskRow row(Object[] r) {
+        return new TaskRow(((Number) r[0]).longValue(), (String) r[1], Boolean.TRUE.equals(r[2]),
+                ((Number) r[3]).longValue(), ((Number) r[4]).longValue(), (String) r[5], Boolean.TRUE.equals(r[6]));
+    }
+
+    // Same steps as Hibernate's own bulk-update cleanup, but for one entry instead of
+    // the whole "tasks" region: cached task lists count as stale from now on, and the
+    // entry plus the timestamp are settled again once the transaction completes.
+    private void evict(long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        CacheImplementor cache = session.getFactory().getCache();
+        TimestampsCache timestamps = cache.getTimestampsCache();
+        cache.evictEntityData(Task.class, id);
+        if (timestamps != null) {
+            timestamps.preInvalidate(TASKS_SPACE, session);
+        }
+        session.getActionQueue().registerProcess((success, s) -> {
+            cache.evictEntityData(Task.class, id);
+            if (timestamps != null) {
+                timestamps.invalidate(TASKS_SPACE, s);
+            }
+        });
+    }
+
+    private Returning returning() {
+        Dialect dialect = entityManager.unwrap(SessionImplementor.class).getFactory().getJdbcServices().getDialect();
+        if (dialect instanceof PostgreSQLDialect) {
+            return Returning.RETURNING;
+        }
+        return dialect instanceof H2Dialect ? Returning.DELTA_TABLE : Returning.NONE;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+
+// a task row as returned by the conditional writes in TaskRepositoryCustom;
+// wasDone is the done flag before the write (task statistics)
+public record TaskRow(Long id, String title, boolean done, long version, Long userId, String username,
+                      boolean wasDone) {
+
+    public TaskDTO toDTO() {
+        return new TaskDTO(id, title, done, username, version);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskStatsDTO;
+import com.example.todoapp.shard.ShardedTasks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+// Counters behind GET /tasks/stats: one task_stats row per user (total/done) and
+// net completions per user and day. The task write paths add their deltas in
+// their own transaction, so the counters commit or roll back with the tasks and
+// reading them costs O(users), never a scan of tasks. A periodic recount fixes
+// whatever drifts anyway (writes that bypass TaskController, or a recount racing
+// an in-flight write).
+@Component
+public class TaskStats {
+
+    // statements touch only the counter tables: Hibernate must not flush or
+    // invalidate cached entities/queries for them
+    private static final String SPACE = "task_stats";
+
+    private final EntityManager entityManager;
+    // null unless shards.enabled: the recount then reads the shards
+    private final ShardedTasks shards;
+    private final Counter corrections;
+
+    public TaskStats(EntityManager entityManager, MeterRegistry meterRegistry, ObjectProvider<ShardedTasks> shards) {
+        this.entityManager = entityManager;
+        this.shards = shards.getIfAvailable();
+        this.corrections = Counter.builder("tasks.stats.corrections")
+                .description("task_stats rows fixed by the periodic recount")
+                .register(meterRegistry);
+    }
+
+    // total/done: change in the user's task and done counts; completed: tasks
+    // marked done (or undone, negative) today. Call inside the writing transaction.
+    public void record(long userId, long total, long done, long completed) {
+        if (total != 0 || done != 0) {
+            statement(postgres()
+                    ? "insert into task_stats (user_id, total, done) values (:user, :total, :done)"
+                      + " on conflict (user_id) do update"
+                      + " set total = task_stats.total + excluded.total, done = task_stats.done + excluded.done"
+                    : "merge into task_stats s using (values (cast(:user as bigint), cast(:total as bigint),"
+                      + " cast(:done as bigint))) v (user_id, total, done) on s.user_id = v.user_id"
+                      + " when matched then update set total = s.total + v.total, done = s.done + v.done"
+                      + " when not matched then insert (user_id, total, done) values (v.user_id, v.total, v.done)")
+                    .setParameter("user", userId)
+                    .setParameter("total", total)
+                    .setParameter("done", done)
+                    .executeUpdate();
+        }
+        if (completed != 0) {
+            statement(postgres()
+                    ? "insert into task_completions_daily (completed_on, user_id, completed) values (:day, :user, :completed)"
+                      + " on conflict (completed_on, user_id) do update"
+                      + " set completed = task_completions_daily.completed + excluded.completed"
+                    : "merge into task_completions_daily c using (values (cast(:day as date), cast(:user as bigint),"
+                      + " cast(:completed as bigint))) v (completed_on, user_id, completed)"
+                      + " on c.completed_on = v.completed_on and c.user_id = v.user_id"
+                      + " when matched then update set completed = c.completed + v.completed"
+                      + " when not matched then insert (completed_on, user_id, completed)"
+                      + " values (v.completed_on, v.user_id, v.completed)")
+                    .setParameter("day", Date.valueOf(LocalDate.now(ZoneOffset.UTC)))
+                    .setParameter("user", userId)
+                    .setParameter("completed", completed)
+                    .executeUpdate();
+        }
+    }
+
+    // owner == null → every user (admins); completions for the last `days` days
+    @Transactional(readOnly = true)
+    public TaskStatsDTO read(String owner, int days) {
+        String byOwner = owner == null ? "" : " where u.username = :owner";
+
+        NativeQuery<?> users = statement("select u.username, s.total, s.done from task_stats s"
+                + " join users u on u.id = s.user_id" + byOwner + " order by u.username");
+        NativeQuery<?> completions = statement("select c.completed_on, sum(c.completed) from task_completions_daily c"
+                + (owner == null ? "" : " join users u on u.id = c.user_id")
+                + " where c.completed_on > :since" + (owner == null ? "" : " and u.username = :owner")
+                + " group by c.completed_on order by c.completed_on")
+                .setParameter("since", Date.valueOf(LocalDate.now(ZoneOffset.UTC).minusDays(days)));
+        if (owner != null) {
+            users.setParameter("owner", owner);
+            completions.setParameter("owner", owner);
+        }
+
+        List<TaskStatsDTO.UserStats> perUser = rows(users).stream()
+                .map(r -> new TaskStatsDTO.UserStats((String) r[0], ((Number) r[1]).longValue(), ((Number) r[2]).longValue()))
+                .toList();
+        List<TaskStatsDTO.DailyCompletions> perDay = rows(completions).stream()
+                .map(r -> new TaskStatsDTO.DailyCompletions(day(r[0]), ((Number) r[1]).longValue()))
+                .toList();
+        return new TaskStatsDTO(perUser, perDay);
+    }
+
+    // Recounts total/done from tasks and rewrites only the rows that drifted. Daily
+    // completions are a history of transitions and can't be recounted from tasks.
+    @Scheduled(fixedDelayString = "${tasks.stats.reconcile-interval:1h}",
+               initialDelayString = "${tasks.stats.reconcile-interval:1h}")
+    @Transactional
+    public int reconcile() {
+        statement(postgres()
+                ? "insert into task_stats (user_id) select id from users on conflict (user_id) do nothing"
+                : "merge into task_stats s using (select id from users) u on s.user_id = u.id"
+                  + " when not matched then insert (user_id) values (u.id)")
+                .executeUpdate();
+        if (shards != null) {
+            return reconcileFromShards();
+        }
+        String total = "(select count(*) from tasks t where t.user_id = s.user_id)";
+        String done = "(select count(*) from tasks t where t.user_id = s.user_id and t.done = true)";
+        int fixed = statement("update task_stats s set total = " + total + ", done = " + done
+                + " where s.total <> " + total + " or s.done <> " + done)
+                .executeUpdate();
+        corrections.increment(fixed);
+        return fixed;
+    }
+
+    // counts grouped by user on every shard, compared here row by row
+    private int reconcileFromShards() {
+        Map<Long, long[]> counts = shards.countsByUser();
+        int fixed = 0;
+        for (Object[] row : rows(statement("select user_id, total, done from task_stats"))) {
+            long userId = ((Number) row[0]).longValue();
+            long[] actual = counts.getOrDefault(userId, new long[2]);
+            if (((Number) row[1]).longValue() != actual[0] || ((Number) row[2]).longValue() != actual[1]) {
+                fixed += statement("update task_stats set total = :total, done = :done where user_id = :user")
+                        .setParameter("total", actual[0])
+                        .setParameter("done", actual[1])
+                        .setParameter("user", userId)
+                        .executeUpdate();
+            }
+        }
+        corrections.increment(fixed);
+        return fixed;
+    }
+
+    private NativeQuery<?> statement(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace(SPACE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> rows(NativeQuery<?> query) {
+        return (List<Object[]>) query.getResultList();
+    }
+
+    private static LocalDate day(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private boolean postgres() {
+        return entityManager.unwrap(SessionImplementor.class).getFactory().getJdbcServices().getDialect()
+                instanceof PostgreSQLDialect;
+    }
+}
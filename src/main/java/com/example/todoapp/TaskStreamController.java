@@ -0,0 +1,35 @@
+package com.example.todoapp;
+
+import com.example.todoapp.exception.TooManyRequestsException;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/tasks")
+public class TaskStreamController {
+
+    private final TaskChangeFeed changeFeed;
+
+    public TaskStreamController(TaskChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // Server-sent events: created/updated/toggled/deleted for the caller's tasks, all tasks for admins
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication auth) {
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(r -> r.equals("ROLE_ADMIN"));
+
+        SseEmitter emitter = changeFeed.subscribe(isAdmin ? null : auth.getName());
+        if (emitter == null) {
+            throw new TooManyRequestsException("Too many open change streams, retry later", 30);
+        }
+        return emitter;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskChangesDTO;
+import com.example.todoapp.dto.TaskDTO;
+import com.example.todoapp.exception.GoneException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Delta sync for GET /tasks/changes. Task writes stamp rows with task_change_seq,
+// deletes leave a tombstone stamped from the same sequence, so "what changed"
+// is an index range scan above the client's last value.
+//
+// Sequence values are drawn when a statement runs but become visible on commit,
+// so a slow transaction can commit a value below one a client has already seen.
+// The token therefore only advances its lower bound ("since") to a value that was
+// the maximum at least `settle` ago: by then every transaction that drew a lower
+// value has committed or rolled back. Rows above it may be sent again; that is
+// the price of never skipping one. Writes must not take longer than `settle`.
+@Component
+public class TaskSync {
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository tombstones;
+    private final long settleMillis;
+    private final Duration tombstoneRetention;
+
+    public TaskSync(TaskRepository taskRepository,
+                    TaskTombstoneRepository tombstones,
+                    @Value("${tasks.sync.settle:30s}") Duration settle,
+                    @Value("${tasks.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.taskRepository = taskRepository;
+        this.tombstones = tombstones;
+        this.settleMillis = settle.toMillis();
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    // owner == null → every task (admins)
+    @Transactional(readOnly = true)
+    public TaskChangesDTO changes(String token, String owner, int limit) {
+        TaskSyncToken from = TaskSyncToken.decode(token);
+        // Where the client's copy is complete up to; deletes above it still have their
+        // tombstones. A first pass (since = 0) read the live rows up to its cursor and,
+        // once done, as of its mark: a delete compacted after that never reaches it.
+        long position = from.since() > 0 ? from.since() : Math.max(from.after(), from.mark());
+        long horizon = tombstones.compactedHorizon();
+        if (!from.equals(TaskSyncToken.INITIAL) && position < horizon) {
+            throw new GoneException("Sync token expired, reload all tasks");
+        }
+
+        // read before the rows: anything this misses is above it and comes next time;
+        // the horizon counts too, compaction may have removed the highest value
+        long currentMax = Math.max(horizon, Math.max(taskRepository.maxChangeSeq(), tombstones.maxChangeSeq()));
+        long now = System.currentTimeMillis();
+
+        // one extra row from each side tells whether the merged page is full
+        Limit fetch = Limit.of(limit + 1);
+        List<TaskChange> rows = owner == null
+                ? taskRepository.findChanges(from.after(), fetch)
+                : taskRepository.findChangesByUsername(owner, from.after(), fetch);
+        List<TaskTombstone> gone = owner == null
+                ? tombstones.findChanges(from.after(), fetch)
+                : tombstones.findChangesByUsername(owner, from.after(), fetch);
+
+        List<TaskDTO> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long last = from.after();
+        int r = 0;
+        int g = 0;
+        while (changed.size() + deleted.size() < limit && (r < rows.size() || g < gone.size())) {
+            if (g == gone.size() || (r < rows.size() && rows.get(r).changeSeq() < gone.get(g).getChangeSeq())) {
+                TaskChange row = rows.get(r++);
+                changed.add(row.toDTO());
+                last = row.changeSeq();
+            } else {
+                TaskTombstone tombstone = gone.get(g++);
+                deleted.add(tombstone.getTaskId());
+                last = tombstone.getChangeSeq();
+            }
+        }
+        boolean hasMore = r < rows.size() || g < gone.size();
+
+        TaskSyncToken next;
+        if (hasMore) {
+            next = new TaskSyncToken(from.since(), last, from.mark(), from.markedAt());
+        } else if (from.mark() > 0 && now - from.markedAt() >= settleMillis) {
+            // the old mark has settled: nothing at or below it can show up any more
+            long since = Math.max(from.since(), from.mark());
+            next = new TaskSyncToken(since, since, currentMax, now);
+        } else if (from.mark() == 0) {
+            next = new TaskSyncToken(from.since(), from.since(), currentMax, now);
+        } else {
+            // keep the pending mark so frequent syncs still let it settle
+            next = new TaskSyncToken(from.since(), from.since(), from.mark(), from.markedAt());
+        }
+        return new TaskChangesDTO(changed, deleted, next.encode(), hasMore);
+    }
+
+    // called inside the deleting transaction
+    public void recordDelete(long taskId, long userId) {
+        tombstones.save(new TaskTombstone(taskId, userId, Instant.now()));
+    }
+
+    // Drops tombstones past the retention and raises the horizon over them:
+    // tokens from before it can no longer learn about those deletes.
+    @Scheduled(cron = "${tasks.sync.compaction-cron:0 30 3 * * *}")
+    @Transactional
+    public void compactTombstones() {
+        Long upTo = tombstones.maxChangeSeqDeletedBefore(Instant.now().minus(tombstoneRetention));
+        if (upTo == null) {
+            return;
+        }
+        tombstones.raiseHorizon(upTo);
+        tombstones.deleteUpTo(upTo);
+    }
+}
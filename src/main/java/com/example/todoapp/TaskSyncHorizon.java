@@ -0,0 +1,21 @@
+package com.example.todoapp;
+
+import jakarta.persistence.*;
+
+// Single row (id = 1): the highest tombstone change_seq compacted away so far.
+// A sync token below it may have missed deletes and has to start over.
+@Entity
+@Table(name = "task_sync_horizon")
+public class TaskSyncHorizon {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "compacted_seq", nullable = false)
+    private long compactedSeq;
+
+    protected TaskSyncHorizon() {}
+
+    public Integer getId() { return id; }
+    public long getCompactedSeq() { return compactedSeq; }
+}
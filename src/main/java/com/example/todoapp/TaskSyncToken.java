@@ -0,0 +1,42 @@
+package com.example.todoapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque position of a client in the task change stream (GET /tasks/changes).
+//   since    → every change_seq <= since has been delivered and can no longer appear
+//   after    → paging cursor within the current pass, >= since
+//   mark     → highest change_seq seen at markedAt (epoch millis); once no
+//              transaction that drew a lower value can still be open, it
+//              becomes the next "since"
+public record TaskSyncToken(long since, long after, long mark, long markedAt) {
+
+    private static final String PREFIX = "s:";
+
+    public static final TaskSyncToken INITIAL = new TaskSyncToken(0, 0, 0, 0);
+
+    public String encode() {
+        String raw = PREFIX + since + ":" + after + ":" + mark + ":" + markedAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static TaskSyncToken decode(String token) {
+        if (token == null || token.isBlank()) {
+            return INITIAL;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException();
+            }
+            String[] parts = raw.substring(PREFIX.length()).split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException();
+            }
+            return new TaskSyncToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid sync token");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.todoapp;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+// Left behind by deleteTask so GET /tasks/changes can tell clients what to drop.
+// The id is the deleted task's id: Persistable makes save() a plain insert
+// instead of merge's select-then-insert.
+@Entity
+@Table(name = "task_tombstones")
+public class TaskTombstone implements Persistable<Long> {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // same sequence as Task.changeSeq, drawn by the insert itself
+    @Column(name = "change_seq", nullable = false)
+    @ColumnTransformer(write = "nextval('task_change_seq') + 0 * ?")
+    private long changeSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    protected TaskTombstone() {}
+
+    public TaskTombstone(Long taskId, Long userId, Instant deletedAt) {
+        this.taskId = taskId;
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+    }
+
+    @PostLoad
+    void markLoaded() { this.isNew = false; }
+
+    @Override
+    public Long getId() { return taskId; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    public Long getTaskId() { return taskId; }
+    public Long getUserId() { return userId; }
+    public long getChangeSeq() { return changeSeq; }
+    public Instant getDeletedAt() { return deletedAt; }
+}
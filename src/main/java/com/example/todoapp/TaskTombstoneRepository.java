@@ -0,0 +1,42 @@
+package com.example.todoapp;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    // same seek as the task delta: (user_id, change_seq), users by username
+    @Query("""
+            select tb from TaskTombstone tb join User u on u.id = tb.userId
+            where u.username = :username and tb.changeSeq > :after
+            order by tb.changeSeq""")
+    List<TaskTombstone> findChangesByUsername(String username, long after, Limit limit);
+
+    @Query("""
+            select tb from TaskTombstone tb
+            where tb.changeSeq > :after
+            order by tb.changeSeq""")
+    List<TaskTombstone> findChanges(long after, Limit limit);
+
+    @Query("select coalesce(max(tb.changeSeq), 0) from TaskTombstone tb")
+    long maxChangeSeq();
+
+    @Query("select max(tb.changeSeq) from TaskTombstone tb where tb.deletedAt < :cutoff")
+    Long maxChangeSeqDeletedBefore(Instant cutoff);
+
+    @Modifying
+    @Query("delete from TaskTombstone tb where tb.changeSeq <= :upTo")
+    int deleteUpTo(long upTo);
+
+    @Query("select h.compactedSeq from TaskSyncHorizon h where h.id = 1")
+    long compactedHorizon();
+
+    @Modifying
+    @Query("update TaskSyncHorizon h set h.compactedSeq = :upTo where h.id = 1 and h.compactedSeq < :upTo")
+    int raiseHorizon(long upTo);
+}
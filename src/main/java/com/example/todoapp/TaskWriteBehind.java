@@ -0,0 +1,208 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind for PATCH /tasks/{id}/done (tasks.write-behind.enabled, off by
+// default): the latest requested state per task waits in memory and the request
+// is answered at once. Every `interval`, or as soon as `max-pending` tasks wait,
+// one transaction writes them all as a single JDBC batch, so a burst of clicks on
+// one checkbox costs one UPDATE, or none if it ends where it started. The counters,
+// list ETags and change events follow at flush time, as for any other write.
+// Synchronous writes to a task flush it first, in their own transaction, so an
+// older pending state never lands on top of them; shutdown flushes the rest (the
+// web server has stopped taking requests by then), trying up to shutdown-attempts
+// times and logging the ids of the tasks whose toggles it then drops. The price of
+// the mode: a crash loses up to one interval of acknowledged toggles.
+//
+// A state stays pending until the transaction that wrote it has committed, so a
+// rollback (of a flush, or of the request a flush ran in) loses nothing; writing
+// a state twice is a no-op, setDoneAll skips rows already in it. Every flush takes
+// its connection before the lock: whoever holds the lock never waits for the pool,
+// and a request waiting for it holds no row locks yet (the flush comes first).
+@Component
+public class TaskWriteBehind implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteBehind.class);
+    private static final Duration SHUTDOWN_RETRY_PAUSE = Duration.ofMillis(200);
+
+    // requester: whose reads already see the pending state
+    record Pending(boolean done, String requester) {}
+
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    // one flush at a time, so flushes write (and, row locks, commit) in the order their states were taken
+    private final ReentrantLock flushing = new ReentrantLock();
+    // max-pending flushes, off the request thread and the connection its transaction holds
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "task-write-behind");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final TaskRepository taskRepository;
+    private final TaskStats taskStats;
+    private final TaskListVersions listVersions;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate joined;
+    private final TransactionTemplate own;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int shutdownAttempts;
+
+    public TaskWriteBehind(TaskRepository taskRepository,
+                           TaskStats taskStats,
+                           TaskListVersions listVersions,
+                           ApplicationEventPublisher events,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${tasks.write-behind.enabled:false}") boolean enabled,
+                           @Value("${tasks.write-behind.max-pending:500}") int maxPending,
+                           @Value("${tasks.write-behind.shutdown-attempts:3}") int shutdownAttempts) {
+        this.taskRepository = taskRepository;
+        this.taskStats = taskStats;
+        this.listVersions = listVersions;
+        this.events = events;
+        // a flush forced by a synchronous write joins its transaction, on the connection it
+        // already has; the scheduled one (and shutdown) gets its own
+        this.joined = new TransactionTemplate(transactionManager);
+        this.own = new TransactionTemplate(transactionManager);
+        this.own.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.shutdownAttempts = shutdownAttempts;
+        Gauge.builder("tasks.write-behind.pending", pending, Map::size)
+                .description("Acknowledged task toggles not yet written")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // caller checked access; the list ETags move now, since reads show the pending state
+    public void enqueue(TaskRow task, boolean done, String requester) {
+        pending.put(task.id(), new Pending(done, requester));
+        listVersions.bump(task.username());
+        if (pending.size() >= maxPending && !flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    // the requester's own pending toggles, applied to a page about to be returned
+    public List<TaskDTO> overlay(List<TaskDTO> tasks, String requester) {
+        if (pending.isEmpty()) {
+            return tasks;
+        }
+        return tasks.stream().map(task -> {
+            Pending state = pending.get(task.getId());
+            return state == null || !state.requester().equals(requester) || state.done() == task.isDone()
+                    ? task
+                    : new TaskDTO(task.getId(), task.getTitle(), state.done(), task.getUsername(), task.getVersion());
+        }).toList();
+    }
+
+    // before a synchronous write to these tasks, in its transaction (a failure fails the write)
+    public void flush(Collection<Long> taskIds) {
+        if (!pending.isEmpty() && taskIds.stream().anyMatch(pending::containsKey)) {
+            write(joined);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.write-behind.interval:250ms}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            write(own);
+        } catch (RuntimeException e) {
+            // still pending, the next flush retries
+            log.warn("Writing {} pending task toggles failed, will retry", pending.size(), e);
+        }
+    }
+
+    // no later flush to leave a failure to: retry here, then say what is lost
+    @Override
+    public void destroy() throws InterruptedException {
+        flusher.shutdown();
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= shutdownAttempts && !pending.isEmpty(); attempt++) {
+            if (failure != null) {
+                Thread.sleep(SHUTDOWN_RETRY_PAUSE.toMillis());
+            }
+            try {
+                write(own);
+                failure = null;
+            } catch (RuntimeException e) {
+                failure = e;
+                log.warn("Writing {} pending task toggles at shutdown failed (attempt {} of {})",
+                        pending.size(), attempt, shutdownAttempts, e);
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.error("Shutting down without writing the acknowledged toggles of tasks {}",
+                    new TreeSet<>(pending.keySet()), failure);
+        }
+    }
+
+    private void write(TransactionTemplate transaction) {
+        transaction.executeWithoutResult(status -> {
+            flushing.lock();
+            try {
+                Map<Long, Pending> batch = new HashMap<>(pending);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                // a newer toggle for the same task replaced its entry and stays for the next flush
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        batch.forEach(pending::remove);
+                    }
+                });
+
+                Map<Long, Boolean> done = new HashMap<>();
+                batch.forEach((id, state) -> done.put(id, state.done()));
+
+                Map<Long, Long> doneDeltas = new HashMap<>();
+                for (TaskRow row : taskRepository.setDoneAll(done)) {
+                    doneDeltas.merge(row.userId(), row.done() ? 1L : -1L, Long::sum);
+                    listVersions.bump(row.username());
+                    events.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.TOGGLED, row.toDTO()));
+                }
+                doneDeltas.forEach((userId, delta) -> taskStats.record(userId, 0, delta, delta));
+            } finally {
+                flushing.unlock();
+            }
+        });
+    }
+}
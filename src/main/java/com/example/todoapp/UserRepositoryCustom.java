@@ -0,0 +1,7 @@
+package com.example.todoapp;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    Optional<User> findByUsername(String username);
+}
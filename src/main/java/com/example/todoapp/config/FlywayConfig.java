@@ -1,21 +1,48 @@
 package com.example.todoapp.config;
 
 import org.flywaydb.core.Flyway;
-import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.jdbc.DatabaseDriver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 
 import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
 
 @Configuration
 public class FlywayConfig {
-    @Bean(initMethod = "migrate")
-    public Flyway flyway(DataSource dataSource) {
-        return Flyway.configure()
+    // db.migrate-on-startup=false skips migrate (scanning and validating every script)
+    // on instances that start after the schema is current, e.g. when the rollout runs
+    // it once up front: java -Dspring.context.exit=onRefresh -jar app.jar
+    //   --spring.main.web-application-type=none
+    @Bean
+    public Flyway flyway(DataSource dataSource,
+                         @Value("${db.migrate-on-startup:true}") boolean migrateOnStartup) throws MetaDataAccessException {
+        Flyway flyway = Flyway.configure()
                 .dataSource(dataSource)
-                .locations("classpath:db/migration")
+                // shared scripts + scripts that need database-specific SQL
+                .locations("classpath:db/migration", "classpath:db/vendor/" + vendor(dataSource))
                 .baselineOnMigrate(true)
                 .load();
+        if (migrateOnStartup) {
+            flyway.migrate();
+        }
+        return flyway;
+    }
+
+    // Hibernate starts on a migrated schema, whatever order the beans are created in
+    // (lazy initialization, deferred repository bootstrap)
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnFlyway() {
+        return new EntityManagerFactoryDependsOnPostProcessor("flyway");
     }
-}
 
+    // "postgresql", "h2", ... (same ids Spring Boot uses for {vendor} locations)
+    static String vendor(DataSource dataSource) throws MetaDataAccessException {
+        String url = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getURL);
+        return DatabaseDriver.fromJdbcUrl(url).getId();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.todoapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Configuration
+public class JpaConfig {
+
+    // second-level cache regions, see @Cache/@NaturalIdCache on User and Task and the
+    // cacheable queries in TaskRepository
+    static final List<String> BOUNDED_REGIONS = List.of(
+            "users", "users-by-username", "tasks", "task-lists", "default-query-results-region");
+    // must never evict: a missing timestamp would make stale query results look current
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // Group inserts/updates into JDBC batches (needs sequence-generated ids, see Task)
+    @Bean
+    HibernatePropertiesCustomizer jdbcBatching(@Value("${jpa.batch-size:50}") int batchSize) {
+        return props -> {
+            props.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            props.put(AvailableSettings.ORDER_INSERTS, true);
+            props.put(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+    // One in-heap Caffeine cache manager per application context (not the JVM-wide
+    // default one), so contexts on different databases never share cached rows
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "jpa.cache.enabled", havingValue = "true", matchIfMissing = true)
+    CacheManager hibernateCacheManager(@Value("${jpa.cache.max-entries:10000}") long maxEntries,
+                                       @Value("${jpa.cache.ttl:10m}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("todoapp-" + UUID.randomUUID()), JpaConfig.class.getClassLoader());
+
+        for (String region : BOUNDED_REGIONS) {
+            cacheManager.createCache(region, new CaffeineConfiguration<>()
+                    .setMaximumSize(OptionalLong.of(maxEntries))
+                    .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                    .setStatisticsEnabled(true));
+        }
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>().setStatisticsEnabled(true));
+        return cacheManager;
+    }
+
+    // Hit/miss counts per region come from Hibernate statistics, which Boot exports as
+    // hibernate.second.level.cache.requests / hibernate.cache.natural.id.requests / hibernate.cache.query.requests
+    @Bean
+    @ConditionalOnProperty(name = "jpa.cache.enabled", havingValue = "true", matchIfMissing = true)
+    HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return props -> {
+            props.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            props.put(AvailableSettings.USE_QUERY_CACHE, true);
+            props.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            props.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // every region is created above with a size bound; an unknown one is a bug
+            props.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            props.put(AvailableSettings.GENERATE_STATISTICS, true);
+            props.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+}
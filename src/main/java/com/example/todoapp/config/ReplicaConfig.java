@@ -0,0 +1,104 @@
+package com.example.todoapp.config;
+
+import com.example.todoapp.replica.RecentWriters;
+import com.example.todoapp.replica.ReplicaHealth;
+import com.example.todoapp.replica.ReplicaRoutingDataSource;
+import com.example.todoapp.replica.ReplicaTransactionManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Optional read replica, on when replica.datasource.url is set: spring.datasource.*
+// stays the primary, read-only transactions go to the replica (see
+// ReplicaRoutingDataSource). Without it Boot's single DataSource is used as before.
+// Keep replica.max-lag below tasks.sync.settle: delta sync tokens assume anything
+// older than the settle window is visible wherever the next sync reads.
+@Configuration
+@ConditionalOnProperty(name = "replica.datasource.url")
+public class ReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.datasource.hikari")
+    HikariDataSource replicaDataSource(@Value("${replica.datasource.url}") String url,
+                                       @Value("${replica.datasource.username:${spring.datasource.username:}}") String username,
+                                       @Value("${replica.datasource.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    // Postgres: seconds since the last replayed transaction, 0 while nothing is
+    // waiting to be replayed (an idle primary is not lag). Elsewhere only liveness.
+    @Bean
+    ReplicaHealth replicaHealthIndicator(@Qualifier("replicaDataSource") DataSource replica,
+                                         @Value("${replica.datasource.url}") String url,
+                                         @Value("${replica.lag-query:}") String lagQuery,
+                                         @Value("${replica.max-lag:10s}") Duration maxLag) {
+        if (lagQuery.isBlank()) {
+            lagQuery = DatabaseDriver.fromJdbcUrl(url) == DatabaseDriver.POSTGRESQL
+                    ? "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+                      + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end"
+                    : "select 0";
+        }
+        return new ReplicaHealth(replica, lagQuery, maxLag);
+    }
+
+    // as long as the replica may be behind: a list read after the window can't pair
+    // old rows with the new ETag (TaskListVersions)
+    @Bean
+    RecentWriters recentWriters(@Value("${replica.read-your-writes:${replica.max-lag:10s}}") Duration window,
+                                @Value("${replica.read-your-writes-max-users:100000}") long maxUsers) {
+        return new RecentWriters(window, maxUsers);
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                      @Qualifier("replicaDataSource") DataSource replica,
+                                                      ReplicaHealth health,
+                                                      RecentWriters recentWriters) {
+        return new ReplicaRoutingDataSource(primary, replica, health, recentWriters);
+    }
+
+    // what JPA, Flyway and JdbcTemplate get
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // replaces Boot's JpaTransactionManager
+    @Bean
+    PlatformTransactionManager transactionManager(ReplicaRoutingDataSource routing,
+                                                  ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaTransactionManager transactionManager = new ReplicaTransactionManager(routing);
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+}
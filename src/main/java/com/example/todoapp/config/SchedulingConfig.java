@@ -0,0 +1,10 @@
+package com.example.todoapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// background jobs: change-feed heartbeats, ...
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
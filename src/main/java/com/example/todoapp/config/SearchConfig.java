@@ -0,0 +1,54 @@
+package com.example.todoapp.config;
+
+import com.example.todoapp.TaskRepository;
+import com.example.todoapp.UserRepository;
+import com.example.todoapp.exception.NotImplementedException;
+import com.example.todoapp.search.InMemoryTaskSearch;
+import com.example.todoapp.search.PostgresTaskSearch;
+import com.example.todoapp.search.ShardedTaskSearch;
+import com.example.todoapp.search.TaskSearch;
+import com.example.todoapp.shard.TaskShards;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class SearchConfig {
+
+    // Postgres has the tsvector column + GIN index (V5); anything else gets the in-memory index.
+    // Sharded tasks are searched on the shards, which only have the column on Postgres;
+    // an in-memory index per instance would neither fit nor see the others' writes, so
+    // sharding on other databases has no search (501).
+    @Bean
+    public TaskSearch taskSearch(DataSource dataSource, EntityManager entityManager,
+                                 TaskRepository taskRepository, UserRepository userRepository,
+                                 ObjectProvider<TaskShards> shards) throws MetaDataAccessException {
+        TaskShards sharded = shards.getIfAvailable();
+        if (sharded != null) {
+            boolean postgres = isPostgres(dataSource);
+            for (TaskShards.Shard shard : sharded.all()) {
+                postgres &= isPostgres(shard.jdbc().getDataSource());
+            }
+            if (!postgres) {
+                return (query, owner, limit) -> {
+                    throw new NotImplementedException("Search needs Postgres shards");
+                };
+            }
+            return new ShardedTaskSearch(sharded, userRepository);
+        }
+        if (isPostgres(dataSource)) {
+            return new PostgresTaskSearch(entityManager);
+        }
+        return new InMemoryTaskSearch((after, size) -> taskRepository.findBatchForIndexing(after, Limit.of(size)));
+    }
+
+    private static boolean isPostgres(DataSource dataSource) throws MetaDataAccessException {
+        return DatabaseDriver.POSTGRESQL.getId().equals(FlywayConfig.vendor(dataSource));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.todoapp.config;
+
+import com.example.todoapp.UserRepository;
+import com.example.todoapp.shard.ShardRebalancer;
+import com.example.todoapp.shard.ShardedTasks;
+import com.example.todoapp.shard.TaskShards;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Optional sharded task storage, on with shards.enabled=true: tasks live on the
+// databases named in shards.urls.<name>=<jdbc url>, placed by consistent hashing of
+// the owner's user id (ShardRing); spring.datasource.* stays the primary for users,
+// counters and everything else. Shard names decide placement, keep them when URLs
+// change. To add or remove one, deploy the new shards.urls with the old layout as
+// shards.previous-urls.<name>=<jdbc url> (names in both are the same database, the
+// current URL is used), so tasks are found at their old place until moved; run the
+// rebalancer once:
+//   java -jar app.jar --shards.rebalance=true --spring.main.web-application-type=none
+// and, when it reports it is done, drop shards.previous-urls. Tasks from before
+// sharding are read from the primary until the rebalancer has moved them all.
+// Not sharded: delta sync (410, clients reload), archival and write-behind (only
+// see the primary's tasks table, which the rebalancer empties). Search needs the
+// primary and every shard on Postgres (see SearchConfig).
+@Configuration
+@ConditionalOnProperty(name = "shards.enabled", havingValue = "true")
+public class ShardConfig {
+
+    @Bean
+    @DependsOn("flyway")
+    TaskShards taskShards(Environment environment, DataSource dataSource,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${shards.username:${spring.datasource.username:}}") String username,
+                          @Value("${shards.password:${spring.datasource.password:}}") String password,
+                          @Value("${shards.pool-size:10}") int poolSize,
+                          @Value("${shards.virtual-nodes:128}") int virtualNodes,
+                          @Value("${shards.scatter-threads:16}") int scatterThreads,
+                          @Value("${shards.timeout:5s}") Duration timeout,
+                          @Value("${db.migrate-on-startup:true}") boolean migrateOnStartup) {
+        Binder binder = Binder.get(environment);
+        Map<String, String> urls = binder
+                .bind("shards.urls", Bindable.mapOf(String.class, String.class))
+                .orElseThrow(() -> new IllegalStateException("shards.enabled needs shards.urls.<name>=<jdbc url>"));
+        Map<String, String> previousUrls = binder
+                .bind("shards.previous-urls", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+
+        Map<String, DataSource> current = new LinkedHashMap<>();
+        urls.forEach((name, url) -> current.put(name, shard(name, url, username, password, poolSize, migrateOnStartup)));
+        Map<String, DataSource> previous = new LinkedHashMap<>();
+        previousUrls.forEach((name, url) -> previous.put(name, current.containsKey(name) ? current.get(name)
+                : shard(name, url, username, password, poolSize, migrateOnStartup)));
+        return new TaskShards(current, previous, dataSource, transactionManager, virtualNodes, scatterThreads,
+                timeout);
+    }
+
+    private static DataSource shard(String name, String url, String username, String password, int poolSize,
+                                    boolean migrateOnStartup) {
+        HikariDataSource shard = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        shard.setPoolName("shard-" + name);
+        shard.setMaximumPoolSize(poolSize);
+        if (migrateOnStartup) {
+            Flyway.configure()
+                    .dataSource(shard)
+                    // like the primary: shared scripts + database-specific ones (search on Postgres)
+                    .locations("classpath:db/shard",
+                            "classpath:db/shard-vendor/" + DatabaseDriver.fromJdbcUrl(url).getId())
+                    .load()
+                    .migrate();
+        }
+        return shard;
+    }
+
+    @Bean
+    ShardedTasks shardedTasks(TaskShards taskShards, UserRepository userRepository, DataSource dataSource) {
+        return new ShardedTasks(taskShards, userRepository, dataSource);
+    }
+
+    @Bean
+    ShardRebalancer shardRebalancer(TaskShards taskShards, DataSource dataSource,
+                                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                    @Value("${shards.rebalance-chunk-size:500}") int chunkSize) {
+        return new ShardRebalancer(taskShards, dataSource, transactionManager, chunkSize, meterRegistry);
+    }
+
+    // one-off run (see above); closing the context ends the process
+    @Bean
+    @ConditionalOnProperty(name = "shards.rebalance", havingValue = "true")
+    ApplicationRunner shardRebalance(ShardRebalancer shardRebalancer, ConfigurableApplicationContext context) {
+        return args -> {
+            shardRebalancer.rebalance();
+            context.close();
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.todoapp.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+// With spring.main.lazy-initialization (fast-start profile) beans are created on
+// first use, which defers most of the wiring past readiness. Some must not wait:
+// Flyway (the schema has to be current before the first request) and beans with
+// @Scheduled methods, which only get scheduled once they exist and often have no
+// other user (TaskArchiver, the stats reconcile, write-behind flushes, ...).
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return (beanName, definition, type) -> Flyway.class.isAssignableFrom(type) || hasScheduledMethods(type);
+    }
+
+    private static boolean hasScheduledMethods(Class<?> type) {
+        return !MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ? Boolean.TRUE : null).isEmpty();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todoapp.dto;
+
+import java.time.Instant;
+
+// a task from GET /tasks/archive: always done, no longer writable
+public class ArchivedTaskDTO {
+    private Long id;
+    private String title;
+    private String username;
+    private Instant completedAt;
+    private Instant archivedAt;
+
+    public ArchivedTaskDTO(Long id, String title, String username, Instant completedAt, Instant archivedAt) {
+        this.id = id;
+        this.title = title;
+        this.username = username;
+        this.completedAt = completedAt;
+        this.archivedAt = archivedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getUsername() { return username; }
+    public Instant getCompletedAt() { return completedAt; }
+    public Instant getArchivedAt() { return archivedAt; }
+}
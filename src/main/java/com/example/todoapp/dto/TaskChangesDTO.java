@@ -0,0 +1,24 @@
+package com.example.todoapp.dto;
+
+import java.util.List;
+
+// One page of GET /tasks/changes: upsert "changed", drop "deleted", send "next" back.
+// Rows may repeat across pages; applying them again is harmless.
+public class TaskChangesDTO {
+    private List<TaskDTO> changed;
+    private List<Long> deleted;
+    private String next;
+    private boolean hasMore;
+
+    public TaskChangesDTO(List<TaskDTO> changed, List<Long> deleted, String next, boolean hasMore) {
+        this.changed = changed;
+        this.deleted = deleted;
+        this.next = next;
+        this.hasMore = hasMore;
+    }
+
+    public List<TaskDTO> getChanged() { return changed; }
+    public List<Long> getDeleted() { return deleted; }
+    public String getNext() { return next; }
+    public boolean isHasMore() { return hasMore; }
+}
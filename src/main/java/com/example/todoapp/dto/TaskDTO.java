@@ -5,12 +5,18 @@ public class TaskDTO {
     private String title;
     private boolean done;
     private String username; // 🔄 renamed from owner
+    private Long version;     // send back as If-Match on PUT/PATCH/DELETE
 
     public TaskDTO(Long id, String title, boolean done, String username) {
+        this(id, title, done, username, null);
+    }
+
+    public TaskDTO(Long id, String title, boolean done, String username, Long version) {
         this.id = id;
         this.title = title;
         this.done = done;
         this.username = username;
+        this.version = version;
     }
 
     // Getters & setters
@@ -25,4 +31,7 @@ public class TaskDTO {
 
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
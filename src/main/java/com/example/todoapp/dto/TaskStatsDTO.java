@@ -0,0 +1,60 @@
+package com.example.todoapp.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// GET /tasks/stats: totals over "users" (all users for admins, just the caller otherwise)
+public class TaskStatsDTO {
+    private long total;
+    private long done;
+    private long open;
+    private List<UserStats> users;
+    private List<DailyCompletions> completions;
+
+    public TaskStatsDTO(List<UserStats> users, List<DailyCompletions> completions) {
+        this.users = users;
+        this.completions = completions;
+        for (UserStats user : users) {
+            this.total += user.getTotal();
+            this.done += user.getDone();
+        }
+        this.open = total - done;
+    }
+
+    public long getTotal() { return total; }
+    public long getDone() { return done; }
+    public long getOpen() { return open; }
+    public List<UserStats> getUsers() { return users; }
+    public List<DailyCompletions> getCompletions() { return completions; }
+
+    public static class UserStats {
+        private String username;
+        private long total;
+        private long done;
+
+        public UserStats(String username, long total, long done) {
+            this.username = username;
+            this.total = total;
+            this.done = done;
+        }
+
+        public String getUsername() { return username; }
+        public long getTotal() { return total; }
+        public long getDone() { return done; }
+        public long getOpen() { return total - done; }
+    }
+
+    // tasks marked done that day (UTC), minus those marked undone again
+    public static class DailyCompletions {
+        private LocalDate day;
+        private long completed;
+
+        public DailyCompletions(LocalDate day, long completed) {
+            this.day = day;
+            this.completed = completed;
+        }
+
+        public LocalDate getDay() { return day; }
+        public long getCompleted() { return completed; }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.todoapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public class TaskStatusUpdate {
+    @NotNull
+    private Long id;
+
+    private boolean done;
+
+    // Getters & setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public boolean isDone() { return done; }
+    public void setDone(boolean done) { this.done = done; }
+}
@@ -0,0 +1,7 @@
+package com.example.todoapp.exception;
+
+public class NotFoundException extends RuntimeException {
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
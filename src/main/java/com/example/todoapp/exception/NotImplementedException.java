@@ -0,0 +1,7 @@
+package com.example.todoapp.exception;
+
+public class NotImplementedException extends RuntimeException {
+    public NotImplementedException(String message) {
+        super(message);
+    }
+}
@@ -12,7 +12,8 @@ public class TaskMapper {
                 task.getId(),
                 task.getTitle(),
                 task.isDone(),
-                task.getUser() != null ? task.getUser().getUsername() : null
+                task.getUser() != null ? task.getUser().getUsername() : null,
+                task.getVersion()
         );
     }
 }
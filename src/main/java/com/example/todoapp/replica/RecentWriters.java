@@ -0,0 +1,50 @@
+package com.example.todoapp.replica;
+
+import com.example.todoapp.TaskChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+// Read-your-writes: users whose tasks changed within the window read from the
+// primary, whoever made the change (an admin editing someone's task counts for
+// the owner too). Admins read everyone's tasks, so any write counts for them.
+// Marks live in this instance only; behind a load balancer without sticky
+// sessions the replica's max lag is the bound instead.
+public class RecentWriters {
+
+    private static final String ANYONE = "";
+
+    private final Cache<String, Boolean> marks;
+
+    public RecentWriters(Duration window, long maxSize) {
+        this.marks = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent change) {
+        mark(change.owner());
+    }
+
+    public void mark(String username) {
+        marks.put(username, Boolean.TRUE);
+        marks.put(ANYONE, Boolean.TRUE);
+    }
+
+    // for the user of the current request; no user → nothing to read back
+    public boolean currentUserWroteRecently() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return false;
+        }
+        boolean isAdmin = auth.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        return marks.getIfPresent(isAdmin ? ANYONE : auth.getName()) != null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.todoapp.replica;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Periodic probe of the replica: reachable and no more than max-lag behind the
+// primary, otherwise reads fall back to the primary until a later probe passes.
+// Reported as "replica" under /actuator/health; a replica we don't use is
+// UNKNOWN rather than DOWN, the application still works without it.
+public class ReplicaHealth implements HealthIndicator {
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    private volatile boolean usable;
+    private volatile Double lagSeconds;
+    private volatile String problem = "not checked yet";
+
+    public ReplicaHealth(DataSource replica, String lagQuery, Duration maxLag) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(Math.max(1, (int) maxLag.toSeconds()));
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+    }
+
+    public boolean usable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${replica.check-interval:5s}")
+    public void check() {
+        try {
+            Number lag = replica.queryForObject(lagQuery, Number.class);
+            lagSeconds = lag == null ? 0 : lag.doubleValue();
+            usable = lagSeconds * 1000 <= maxLag.toMillis();
+            problem = usable ? null : "lag " + lagSeconds + "s exceeds " + maxLag.toSeconds() + "s";
+        } catch (DataAccessException e) {
+            usable = false;
+            lagSeconds = null;
+            problem = e.getMostSpecificCause().getMessage();
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = usable ? Health.up() : Health.unknown().withDetail("problem", problem);
+        if (lagSeconds != null) {
+            health.withDetail("lagSeconds", lagSeconds);
+        }
+        return health.withDetail("reads", usable ? "replica" : "primary").build();
+    }
+}
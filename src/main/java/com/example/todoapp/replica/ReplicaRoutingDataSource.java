@@ -0,0 +1,39 @@
+package com.example.todoapp.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Read-only transactions (@Transactional(readOnly = true), Spring Data's CRUD finders)
+// read from the replica, everything else - writes, reads outside a transaction,
+// Flyway - uses the primary. Must sit behind a LazyConnectionDataSourceProxy:
+// the transaction manager asks for its connection before the read-only flag is
+// set, the proxy defers the real getConnection() to the first statement.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaHealth health;
+    private final RecentWriters recentWriters;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaHealth health, RecentWriters recentWriters) {
+        this.health = health;
+        this.recentWriters = recentWriters;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    // replica for reads right now: healthy, caught up, and nothing for this user to read back
+    public boolean replicaAllowed() {
+        return health.usable() && !recentWriters.currentUserWroteRecently();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaAllowed()
+                ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.todoapp.replica;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Rows read from a lagging replica must not land in the second-level cache: the
+// write they miss has already invalidated its entries, a stale put would then
+// look current until the TTL. Transactions headed for the replica bypass the
+// cache altogether (CacheMode.GET still puts query results on a miss). Each
+// transaction has its own session (open-in-view is off), so the mode doesn't
+// outlive it.
+public class ReplicaTransactionManager extends JpaTransactionManager {
+
+    private final ReplicaRoutingDataSource routing;
+
+    public ReplicaTransactionManager(ReplicaRoutingDataSource routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        if (definition.isReadOnly() && routing.replicaAllowed()) {
+            EntityManagerHolder holder =
+                    (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+            holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        }
+    }
+}
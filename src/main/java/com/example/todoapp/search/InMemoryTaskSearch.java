@@ -0,0 +1,174 @@
+package com.example.todoapp.search;
+
+import com.example.todoapp.TaskChangedEvent;
+import com.example.todoapp.dto.TaskDTO;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory inverted index over task titles for H2/dev, where there is no tsvector.
+// Built once from the database at startup, then maintained incrementally from
+// committed TaskChangedEvents. Matching mirrors Postgres' 'simple' configuration:
+// lowercase alphanumeric tokens, every query token must match (AND). Ranking is a
+// tf-idf score normalised by title length, highest first, ties by id.
+public class InMemoryTaskSearch implements TaskSearch {
+
+    private static final int LOAD_BATCH = 1000;
+
+    // every task in id order, `size` at a time after `after`, for the startup snapshot
+    public interface Source {
+        List<TaskDTO> batchAfter(long after, int size);
+    }
+
+    private record Doc(TaskDTO task, Map<String, Integer> termCounts, int length) {}
+
+    private final Source source;
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    // deletes seen while the startup snapshot is loading, so the snapshot can't bring them back
+    private final Set<Long> deletedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading = true;
+
+    public InMemoryTaskSearch(Source source) {
+        this.source = source;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() {
+        long after = 0;
+        List<TaskDTO> batch;
+        do {
+            batch = source.batchAfter(after, LOAD_BATCH);
+            for (TaskDTO task : batch) {
+                // rows changed by events in the meantime are newer than the snapshot
+                if (!deletedDuringLoad.contains(task.getId()) && !docs.containsKey(task.getId())) {
+                    index(task);
+                }
+                after = task.getId();
+            }
+        } while (batch.size() == LOAD_BATCH);
+        loading = false;
+        deletedDuringLoad.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.type() == TaskChangedEvent.Type.DELETED) {
+            if (loading) {
+                deletedDuringLoad.add(event.taskId());
+            }
+            remove(event.taskId());
+        } else {
+            index(event.task());
+        }
+    }
+
+    @Override
+    public List<TaskDTO> search(String query, String owner, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        // start from the rarest term's posting list, the others only filter it
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String term : terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        int total = Math.max(docs.size(), 1);
+        List<Map.Entry<Doc, Double>> hits = new ArrayList<>();
+        for (Long id : lists.get(0)) {
+            Doc doc = docs.get(id);
+            if (doc == null || (owner != null && !owner.equals(doc.task().getUsername()))) {
+                continue;
+            }
+            double score = 0;
+            for (String term : terms) {
+                Integer tf = doc.termCounts().get(term);
+                if (tf == null) {
+                    score = -1;
+                    break;
+                }
+                Set<Long> ids = postings.get(term);
+                score += tf * Math.log(1 + total / (double) Math.max(ids == null ? 1 : ids.size(), 1));
+            }
+            if (score >= 0) {
+                hits.add(Map.entry(doc, score / Math.sqrt(doc.length())));
+            }
+        }
+
+        return hits.stream()
+                .sorted(Comparator.<Map.Entry<Doc, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                        .thenComparing(e -> e.getKey().task().getId()))
+                .limit(limit)
+                .map(e -> e.getKey().task())
+                .toList();
+    }
+
+    private void index(TaskDTO task) {
+        List<String> tokens = tokenize(task.getTitle());
+        Map<String, Integer> counts = new HashMap<>();
+        tokens.forEach(t -> counts.merge(t, 1, Integer::sum));
+        Doc doc = new Doc(task, counts, Math.max(tokens.size(), 1));
+
+        // compute() serialises concurrent writes to the same task
+        docs.compute(task.getId(), (id, previous) -> {
+            if (previous != null) {
+                unpost(id, previous);
+            }
+            // add inside compute(): a concurrent unpost may drop an emptied set from the map
+            for (String term : counts.keySet()) {
+                postings.compute(term, (k, ids) -> {
+                    Set<Long> set = ids != null ? ids : ConcurrentHashMap.<Long>newKeySet();
+                    set.add(id);
+                    return set;
+                });
+            }
+            return doc;
+        });
+    }
+
+    private void remove(Long id) {
+        docs.computeIfPresent(id, (key, previous) -> {
+            unpost(key, previous);
+            return null;
+        });
+    }
+
+    private void unpost(Long id, Doc doc) {
+        for (String term : doc.termCounts().keySet()) {
+            postings.computeIfPresent(term, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
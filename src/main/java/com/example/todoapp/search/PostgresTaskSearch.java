@@ -0,0 +1,48 @@
+package com.example.todoapp.search;
+
+import com.example.todoapp.dto.TaskDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Searches the generated tasks.search_vector column (V5 migration, GIN index).
+// websearch_to_tsquery accepts free user input ("quoted phrases", or, -not)
+// without syntax errors; 'simple' = no stemming or stop words, like the in-memory index.
+public class PostgresTaskSearch implements TaskSearch {
+
+    private static final String SELECT = """
+            select t.id, t.title, t.done, u.username, t.version
+            from tasks t
+            join users u on u.id = t.user_id
+            cross join websearch_to_tsquery('simple', :q) query
+            where t.search_vector @@ query
+            """;
+    private static final String ORDER = """
+            order by ts_rank(t.search_vector, query) desc, t.id
+            limit :limit""";
+
+    private final EntityManager entityManager;
+
+    public PostgresTaskSearch(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskDTO> search(String query, String owner, int limit) {
+        Query sql = owner == null
+                ? entityManager.createNativeQuery(SELECT + ORDER)
+                : entityManager.createNativeQuery(SELECT + "and u.username = :owner\n" + ORDER)
+                        .setParameter("owner", owner);
+        sql.setParameter("q", query).setParameter("limit", limit);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = sql.getResultList();
+        return rows.stream()
+                .map(r -> new TaskDTO(((Number) r[0]).longValue(), (String) r[1], Boolean.TRUE.equals(r[2]), (String) r[3],
+                        ((Number) r[4]).longValue()))
+                .toList();
+    }
+}
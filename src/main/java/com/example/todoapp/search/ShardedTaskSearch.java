@@ -0,0 +1,88 @@
+package com.example.todoapp.search;
+
+import com.example.todoapp.User;
+import com.example.todoapp.UserRepository;
+import com.example.todoapp.dto.TaskDTO;
+import com.example.todoapp.shard.TaskShards;
+import com.example.todoapp.shard.TaskShards.Shard;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// PostgresTaskSearch for sharded task storage: every shard has the same generated
+// search_vector column and GIN index (db/shard-vendor/postgresql). A user's search
+// runs where their tasks are (TaskShards.placesFor); an admin's on every shard in
+// parallel, each returning its best `limit`, merged by rank. ts_rank only looks at
+// the row and the query, so ranks from different shards compare.
+public class ShardedTaskSearch implements TaskSearch {
+
+    private static final String SELECT = """
+            select t.id, t.title, t.done, t.version, t.user_id, ts_rank(t.search_vector, query) as rank
+            from tasks t
+            cross join websearch_to_tsquery('simple', ?) query
+            where t.search_vector @@ query
+            """;
+    private static final String ORDER = """
+            order by rank desc, t.id
+            limit ?""";
+
+    private record Hit(long id, String title, boolean done, long version, long userId, double rank) {}
+
+    private static final RowMapper<Hit> HIT = (rs, i) -> new Hit(rs.getLong(1), rs.getString(2), rs.getBoolean(3),
+            rs.getLong(4), rs.getLong(5), rs.getDouble(6));
+
+    private final TaskShards shards;
+    private final UserRepository userRepository;
+
+    public ShardedTaskSearch(TaskShards shards, UserRepository userRepository) {
+        this.shards = shards;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public List<TaskDTO> search(String query, String owner, int limit) {
+        // a task caught mid-move is found twice: keep the copy at the owner's oldest place
+        Map<Long, Hit> byId = new LinkedHashMap<>();
+        if (owner != null) {
+            User user = userRepository.findByUsername(owner).orElse(null);
+            if (user == null) {
+                return List.of();
+            }
+            for (Shard shard : shards.placesFor(user.getId())) {
+                shard.jdbc().query(SELECT + "and t.user_id = ?\n" + ORDER, HIT, query, user.getId(), limit)
+                        .forEach(hit -> byId.putIfAbsent(hit.id(), hit));
+            }
+        } else {
+            Map<Long, Integer> ranks = new HashMap<>();
+            shards.scatter(shard -> shard.jdbc().query(SELECT + ORDER, HIT, query, limit))
+                    .forEach((shard, hits) -> hits.forEach(hit -> {
+                        int place = shards.placesFor(hit.userId()).indexOf(shard);
+                        int rank = place < 0 ? Integer.MAX_VALUE : place;
+                        if (!byId.containsKey(hit.id()) || rank < ranks.get(hit.id())) {
+                            byId.put(hit.id(), hit);
+                            ranks.put(hit.id(), rank);
+                        }
+                    }));
+        }
+
+        List<Hit> best = byId.values().stream()
+                .sorted(Comparator.comparingDouble(Hit::rank).reversed().thenComparingLong(Hit::id))
+                .limit(limit)
+                .toList();
+        Set<Long> userIds = new HashSet<>();
+        best.forEach(hit -> userIds.add(hit.userId()));
+        Map<Long, String> usernames = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> usernames.put(user.getId(), user.getUsername()));
+        List<TaskDTO> tasks = new ArrayList<>();
+        best.forEach(hit -> tasks.add(new TaskDTO(hit.id(), hit.title(), hit.done(), usernames.get(hit.userId()),
+                hit.version())));
+        return tasks;
+    }
+}
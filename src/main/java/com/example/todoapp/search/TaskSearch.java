@@ -0,0 +1,15 @@
+package com.example.todoapp.search;
+
+import com.example.todoapp.dto.TaskDTO;
+
+import java.util.List;
+
+// Ranked full-text search over task titles. Postgres uses a tsvector column with a
+// GIN index (PostgresTaskSearch); H2/dev uses an in-memory inverted index kept up
+// to date from task change events (InMemoryTaskSearch); sharded tasks are searched
+// on the shards (ShardedTaskSearch). See SearchConfig.
+public interface TaskSearch {
+
+    // owner == null searches every task (admins), otherwise only the owner's tasks
+    List<TaskDTO> search(String query, String owner, int limit);
+}
@@ -0,0 +1,54 @@
+package com.example.todoapp.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+// Picks the BCrypt work factor for this host: the highest cost whose hash still
+// fits the latency target. Each +1 doubles the work, so the loop stops at the
+// first cost that is too slow and never measures more than one of those.
+final class BCryptCalibration {
+
+    private static final String PROBE = "calibration-probe-password";
+
+    private BCryptCalibration() {
+    }
+
+    static int strengthFor(Duration target, int minStrength, int maxStrength) {
+        // warm up the JIT on a cheap cost so the first measurement isn't interpreted code
+        for (int i = 0; i < 5; i++) {
+            BCrypt.hashpw(PROBE, BCrypt.gensalt(4));
+        }
+
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            if (fastestOfTwo(strength) > target.toNanos()) {
+                break;
+            }
+            chosen = strength;
+        }
+        return chosen;
+    }
+
+    // cost parsed from "$2a$10$...", -1 if the hash isn't BCrypt
+    static int costOf(String encoded) {
+        if (encoded == null || encoded.length() < 7 || encoded.charAt(0) != '$' || encoded.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encoded, 4, 6, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long fastestOfTwo(int strength) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(PROBE, BCrypt.gensalt(strength));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
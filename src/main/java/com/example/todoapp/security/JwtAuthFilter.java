@@ -1,31 +1,65 @@
 package com.example.todoapp.security;
 
 import com.example.todoapp.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
-
-    public JwtAuthFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    private final TokenVersions tokenVersions;
+    private final VerifiedTokenCache tokenCache;
+    private final AuthEventLog authEvents;
+    // claims-only: trust the signed "roles" claim instead of reloading the user per request
+    private final boolean claimsOnly;
+
+    // auth.filter.stage{stage=...}: where each request's time goes
+    private final Timer cookieTimer;
+    private final Timer cacheTimer;
+    private final Timer verifyTimer;
+    private final Timer userLookupTimer;
+    private final Timer chainTimer;
+
+    public JwtAuthFilter(JwtUtil jwtUtil,
+                         UserDetailsService userDetailsService,
+                         TokenVersions tokenVersions,
+                         VerifiedTokenCache tokenCache,
+                         AuthEventLog authEvents,
+                         MeterRegistry meterRegistry,
+                         @Value("${jwt.claims-only:false}") boolean claimsOnly) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenVersions = tokenVersions;
+        this.tokenCache = tokenCache;
+        this.authEvents = authEvents;
+        this.claimsOnly = claimsOnly;
+        this.cookieTimer = stageTimer(meterRegistry, "cookie");
+        this.cacheTimer = stageTimer(meterRegistry, "cache");
+        this.verifyTimer = stageTimer(meterRegistry, "verify");
+        this.userLookupTimer = stageTimer(meterRegistry, "user_lookup");
+        this.chainTimer = stageTimer(meterRegistry, "chain");
     }
 
     @Override
@@ -33,40 +67,112 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String token = null;
-
-        if (request.getCookies() != null) {
-            token = Arrays.stream(request.getCookies())
-                    .filter(c -> "JWT".equals(c.getName()))
-                    .map(Cookie::getValue)
-                    .findFirst()
-                    .orElse(null);
-        }
+        long start = System.nanoTime();
+        String token = readTokenCookie(request.getCookies());
+        cookieTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
         if (token != null) {
-            System.out.println("✅ JwtAuthFilter: Found JWT cookie");
-            System.out.println("✅ JwtAuthFilter: Token = " + token);
-
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
-                System.out.println("✅ JwtAuthFilter: Token valid for username = " + username);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
+            UserDetails userDetails = resolve(token, request);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(auth);
-            } else {
-                System.out.println("❌ JwtAuthFilter: Invalid token");
             }
+        } else {
+            authEvents.record("no_cookie", request.getMethod(), request.getRequestURI(), null);
+        }
+
+        long chainStart = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            chainTimer.record(System.nanoTime() - chainStart, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    public static String readTokenCookie(Cookie[] cookies) {
+        if (cookies == null) {
+            return null;
+        }
+        return Arrays.stream(cookies)
+                .filter(c -> "JWT".equals(c.getName()))
+                .map(Cookie::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    // Serves a previously verified token from the cache, otherwise verifies it once
+    // and builds the principal; null means "stay anonymous"
+    private UserDetails resolve(String token, HttpServletRequest request) {
+        long start = System.nanoTime();
+        String key = VerifiedTokenCache.keyOf(token);
+        VerifiedTokenCache.Entry cached = tokenCache.get(key);
+        cacheTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (cached != null) {
+            String username = cached.principal().getUsername();
+            // revocation still applies to cached tokens
+            if (tokenVersions.isCurrent(username, cached.tokenVersion())) {
+                authEvents.record("cache_hit", request.getMethod(), request.getRequestURI(), username);
+                return cached.principal();
+            }
+            tokenCache.invalidate(key);
+            authEvents.record("revoked", request.getMethod(), request.getRequestURI(), username);
+            return null;
+        }
+
+        start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (Exception e) {
+            authEvents.record("invalid", request.getMethod(), request.getRequestURI(), null);
+            return null;
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        String username = claims.getSubject();
+        int tokenVersion = JwtUtil.getTokenVersion(claims);
+        if (username == null || !tokenVersions.isCurrent(username, tokenVersion)) {
+            authEvents.record("revoked", request.getMethod(), request.getRequestURI(), username);
+            return null;
+        }
+
+        UserDetails principal;
+        if (claimsOnly) {
+            principal = User.withUsername(username)
+                    .password("")
+                    .authorities(JwtUtil.getRoles(claims).toArray(String[]::new))
+                    .build();
         } else {
-            System.out.println("❌ JwtAuthFilter: No JWT cookie found in request");
+            start = System.nanoTime();
+            try {
+                principal = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                authEvents.record("unknown_user", request.getMethod(), request.getRequestURI(), username);
+                return null;
+            } finally {
+                userLookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
         }
 
-        filterChain.doFilter(request, response);
+        if (claims.getExpiration() != null) {
+            tokenCache.put(key, new VerifiedTokenCache.Entry(principal, tokenVersion,
+                    claims.getExpiration().getTime()));
+        }
+        authEvents.record("verified", request.getMethod(), request.getRequestURI(), username);
+        return principal;
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("auth.filter.stage")
+                .description("Time spent per stage of the JWT authentication filter")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
 }
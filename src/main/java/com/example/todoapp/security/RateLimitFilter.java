@@ -0,0 +1,124 @@
+package com.example.todoapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Runs ahead of JwtAuthFilter (see SecurityConfig), so a flood is turned away
+// before any token is verified or any user loaded. Budgets:
+//   auth  - POST /auth/**, per client IP (login/register hash passwords)
+//   tasks - /tasks/**, per client IP and per user
+// The "user" is the principal of a token JwtAuthFilter already verified (from
+// VerifiedTokenCache), else the token's hash: a made-up token only ever drains
+// its own bucket, never a real user's, and the IP budget still caps those. (A
+// fresh token's first request is charged to its hash, until it is verified.)
+// Behind a proxy, set server.forward-headers-strategy so getRemoteAddr() is the client.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private final boolean enabled;
+    private final VerifiedTokenCache tokenCache;
+    private final RateLimiter authPerIp;
+    private final RateLimiter tasksPerIp;
+    private final RateLimiter tasksPerUser;
+    private final Counter authRejected;
+    private final Counter tasksRejected;
+
+    public RateLimitFilter(VerifiedTokenCache tokenCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.auth.per-ip:20}") int authPerIp,
+                           @Value("${rate-limit.auth.period:1m}") Duration authPeriod,
+                           @Value("${rate-limit.tasks.per-ip:1200}") int tasksPerIp,
+                           @Value("${rate-limit.tasks.per-user:300}") int tasksPerUser,
+                           @Value("${rate-limit.tasks.period:1m}") Duration tasksPeriod,
+                           @Value("${rate-limit.max-keys:1000000}") long maxKeys) {
+        this.enabled = enabled;
+        this.tokenCache = tokenCache;
+        this.authPerIp = new RateLimiter(authPerIp, authPeriod, maxKeys);
+        this.tasksPerIp = new RateLimiter(tasksPerIp, tasksPeriod, maxKeys);
+        this.tasksPerUser = new RateLimiter(tasksPerUser, tasksPeriod, maxKeys);
+        this.authRejected = rejectedCounter(meterRegistry, "auth");
+        this.tasksRejected = rejectedCounter(meterRegistry, "tasks");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        return !path.startsWith("/tasks") && !(path.startsWith("/auth/") && HttpMethod.POST.matches(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String ip = request.getRemoteAddr();
+        RateLimiter.Decision decision;
+        Counter rejected;
+        if (request.getRequestURI().startsWith("/auth/")) {
+            decision = authPerIp.tryAcquire(ip);
+            rejected = authRejected;
+        } else {
+            decision = tasksPerIp.tryAcquire(ip);
+            String user = userKey(request);
+            if (decision.allowed() && user != null) {
+                RateLimiter.Decision perUser = tasksPerUser.tryAcquire(user);
+                // report whichever budget is closer to running out
+                if (!perUser.allowed() || perUser.remaining() < decision.remaining()) {
+                    decision = perUser;
+                }
+            }
+            rejected = tasksRejected;
+        }
+
+        response.setHeader(LIMIT_HEADER, String.valueOf(decision.limit()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(decision.remaining()));
+        response.setHeader(RESET_HEADER, String.valueOf(decision.resetSeconds()));
+        if (!decision.allowed()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too many requests, retry later\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String userKey(HttpServletRequest request) {
+        String token = JwtAuthFilter.readTokenCookie(request.getCookies());
+        if (token == null) {
+            return null;
+        }
+        String key = VerifiedTokenCache.keyOf(token);
+        VerifiedTokenCache.Entry verified = tokenCache.get(key);
+        return verified != null ? "user:" + verified.principal().getUsername() : "token:" + key;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String budget) {
+        return Counter.builder("http.rate-limited")
+                .description("Requests turned away with 429 by RateLimitFilter")
+                .tag("budget", budget)
+                .register(registry);
+    }
+}
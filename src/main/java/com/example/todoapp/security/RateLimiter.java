@@ -0,0 +1,76 @@
+package com.example.todoapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets, one per key, as GCRA: a bucket is a single AtomicLong holding the
+// time it will be full again ("theoretical arrival time"), so taking a token is
+// one CAS and never blocks. A bucket idle for a whole period is full, which is the
+// same as having none, so entries expire after `period` without access; the size
+// bound caps memory when millions of keys show up (evicting a bucket forgives its
+// debt, the per-IP budget still applies).
+public class RateLimiter {
+
+    public record Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {
+
+        public long resetSeconds() {
+            return ceilSeconds(resetNanos);
+        }
+
+        public long retryAfterSeconds() {
+            return Math.max(1, ceilSeconds(retryAfterNanos));
+        }
+
+        private static long ceilSeconds(long nanos) {
+            return (nanos + 999_999_999L) / 1_000_000_000L;
+        }
+    }
+
+    private final int capacity;
+    private final long intervalNanos;   // one token comes back every interval
+    private final long burstNanos;      // capacity * interval = period
+    private final Ticker ticker;
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimiter(int capacity, Duration period, long maxKeys) {
+        this(capacity, period, maxKeys, Ticker.systemTicker());
+    }
+
+    RateLimiter(int capacity, Duration period, long maxKeys, Ticker ticker) {
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(period)
+                .maximumSize(maxKeys)
+                .ticker(ticker)
+                .build();
+    }
+
+    public Decision tryAcquire(String key) {
+        // nanoTime may be negative: a new bucket is "full since forever"
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = ticker.read();
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            long backlog = next - now;
+            if (backlog > burstNanos) {
+                return new Decision(false, capacity, 0, full - now, backlog - burstNanos);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return new Decision(true, capacity, (int) ((burstNanos - backlog) / intervalNanos), backlog, 0);
+            }
+        }
+    }
+
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
@@ -1,16 +1,48 @@
 // src/main/java/com/example/todoapp/security/SecurityBeans.java
 package com.example.todoapp.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
 
 @Configuration
 public class SecurityBeans {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityBeans.class);
+
+    // auth.bcrypt.target-latency > 0 calibrates the cost on this host at startup,
+    // otherwise auth.bcrypt.strength is used as is. Calibration runs on every boot
+    // and a busy host measures slow, so it never goes below auth.bcrypt.min-strength,
+    // by default the configured strength.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordHashing passwordEncoder(
+            @Value("${auth.bcrypt.strength:10}") int strength,
+            @Value("${auth.bcrypt.target-latency:0ms}") Duration targetLatency,
+            @Value("${auth.bcrypt.min-strength:${auth.bcrypt.strength:10}}") int minStrength,
+            @Value("${auth.bcrypt.max-strength:16}") int maxStrength,
+            @Value("${auth.hashing.threads:0}") int threads,
+            @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) throws NoSuchAlgorithmException {
+        if (!targetLatency.isZero()) {
+            strength = BCryptCalibration.strengthFor(targetLatency, minStrength, Math.max(minStrength, maxStrength));
+            log.info("BCrypt cost calibrated to {} for a {} ms target", strength, targetLatency.toMillis());
+        }
+        // leave at least half the cores to request handling
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+
+        // DRBG instead of the default NativePRNG: NativePRNG reads /dev/urandom inside a
+        // synchronized block, which pins virtual threads on every salt generation
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength, SecureRandom.getInstance("DRBG"));
+        return new PasswordHashing(bcrypt, strength, threads, queueCapacity, meterRegistry);
     }
 }
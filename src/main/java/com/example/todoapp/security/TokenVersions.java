@@ -0,0 +1,46 @@
+package com.example.todoapp.security;
+
+import com.example.todoapp.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Small in-memory view of users.token_version so the JWT filter can reject
+// revoked tokens without a database round trip. Entries are learned at login
+// and on revocation; a user with no entry (evicted, or logged in on another
+// instance) is trusted until the token expires.
+@Component
+public class TokenVersions {
+
+    private final UserRepository userRepo;
+    private final Cache<String, Integer> versions;
+
+    public TokenVersions(UserRepository userRepo,
+                         @Value("${jwt.token-versions.max-size:10000}") long maxSize) {
+        this.userRepo = userRepo;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public void remember(String username, int version) {
+        versions.asMap().merge(username, version, Math::max);
+    }
+
+    public boolean isCurrent(String username, int tokenVersion) {
+        Integer known = versions.getIfPresent(username);
+        return known == null || tokenVersion >= known;
+    }
+
+    // Invalidates every token issued to the user so far; one transaction, so the
+    // new version is read back from the primary, not a replica
+    @Transactional
+    public void revoke(String username) {
+        if (userRepo.incrementTokenVersion(username) > 0) {
+            userRepo.findTokenVersionByUsername(username)
+                    .ifPresent(version -> remember(username, version));
+        }
+    }
+}
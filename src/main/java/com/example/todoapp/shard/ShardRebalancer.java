@@ -0,0 +1,109 @@
+package com.example.todoapp.shard;
+
+import com.example.todoapp.shard.TaskShards.Shard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Moves tasks to the shard the ring assigns to their owner: after a shard was added
+// or removed from shards.urls (including off shards only in shards.previous-urls),
+// and, on the first run, everything still in the primary's own tasks table from
+// before sharding was turned on. Only owners whose shard changed move (consistent
+// hashing keeps that to about 1/n of them).
+//
+// Per owner, chunk by chunk, in one transaction on the source: lock the rows
+// (select ... for update), copy them onto the target (replacing any copy a
+// previous, interrupted run left there) and commit that, then delete them from
+// the source and commit. Writes look for a task at its old place first and lock
+// it there (ShardedTasks), so a write or delete during the move waits for it and
+// then finds the task on the target; a crash between the two commits leaves a
+// copy on both sides, which reads show once and the next run cleans up.
+// Until an owner has moved, instances find their tasks at the old place too
+// (TaskShards.placesFor); once a run has finished, shards.previous-urls can go
+// and the primary stops being asked on the next check. Safe to repeat; a run
+// with nothing to do only reads the distinct owners of each table.
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String COLUMNS = "id, title, done, version, user_id, completed_at";
+    private static final RowMapper<Object[]> ROW = (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2),
+            rs.getBoolean(3), rs.getLong(4), rs.getLong(5), rs.getTimestamp(6)};
+
+    private final TaskShards shards;
+    private final JdbcTemplate primary;
+    private final TransactionTemplate primaryTransaction;
+    private final int chunkSize;
+    private final Counter moved;
+
+    public ShardRebalancer(TaskShards shards, DataSource primary, PlatformTransactionManager primaryTransactions,
+                           int chunkSize, MeterRegistry meterRegistry) {
+        this.shards = shards;
+        this.primary = new JdbcTemplate(primary);
+        this.primaryTransaction = new TransactionTemplate(primaryTransactions);
+        this.chunkSize = chunkSize;
+        this.moved = Counter.builder("tasks.shards.moved")
+                .description("Tasks moved to another shard by the rebalancer")
+                .register(meterRegistry);
+    }
+
+    // returns the number of tasks moved by this run
+    public synchronized int rebalance() {
+        // no shard name: every owner's tasks leave the primary
+        int total = drain(null, primary, primaryTransaction);
+        for (Shard shard : shards.all()) {
+            total += drain(shard.name(), shard.jdbc(), shard.transaction());
+        }
+        moved.increment(total);
+        shards.refresh();
+        log.info("Shard rebalancing moved {} tasks{}", total,
+                shards.changingLayout() ? ", shards.previous-urls can be removed now" : "");
+        return total;
+    }
+
+    private int drain(String source, JdbcTemplate jdbc, TransactionTemplate transaction) {
+        int total = 0;
+        for (Long userId : jdbc.queryForList("select distinct user_id from tasks", Long.class)) {
+            Shard target = shards.forUser(userId);
+            if (!target.name().equals(source)) {
+                int count = move(userId, jdbc, transaction, target);
+                log.debug("Moved {} tasks of user {} from {} to {}", count, userId,
+                        source != null ? source : "the primary", target.name());
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    private int move(long userId, JdbcTemplate source, TransactionTemplate sourceTransaction, Shard target) {
+        int total = 0;
+        while (true) {
+            int count = sourceTransaction.execute(status -> {
+                List<Object[]> chunk = source.query("select " + COLUMNS + " from tasks where user_id = ?"
+                        + " order by id limit ? for update", ROW, userId, chunkSize);
+                if (chunk.isEmpty()) {
+                    return 0;
+                }
+                List<Object[]> ids = chunk.stream().map(row -> new Object[]{row[0]}).toList();
+                target.transaction().executeWithoutResult(inner -> {
+                    target.jdbc().batchUpdate("delete from tasks where id = ?", ids);
+                    target.jdbc().batchUpdate("insert into tasks (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?)", chunk);
+                });
+                source.batchUpdate("delete from tasks where id = ?", ids);
+                return chunk.size();
+            });
+            if (count == 0) {
+                return total;
+            }
+            total += count;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.todoapp.shard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Consistent hashing of user ids onto shard names. Every shard owns `virtualNodes`
+// points on a 64-bit ring (MD5 of "name#i"), a user belongs to the first point at
+// or after the hash of their id. Placement depends only on the set of names, not on
+// their order or on the JVM: adding a shard takes over about 1/(n+1) of the users,
+// all of them from the others, nobody else moves (see ShardRebalancer).
+public class ShardRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final List<String> names;
+
+    public ShardRing(Collection<String> names, int virtualNodes) {
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.names = names.stream().sorted().toList();
+        for (String name : this.names) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // on the (unlikely) collision the smaller name keeps the point, in any order
+                points.putIfAbsent(hash(name + "#" + i), name);
+            }
+        }
+    }
+
+    public String shardFor(long userId) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(Long.toString(userId)));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.todoapp.shard;
+
+import com.example.todoapp.TaskRow;
+import com.example.todoapp.User;
+import com.example.todoapp.UserRepository;
+import com.example.todoapp.dto.CreateTaskRequest;
+import com.example.todoapp.dto.TaskDTO;
+import com.example.todoapp.shard.TaskShards.Shard;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+// Task storage in sharded mode (shards.enabled), what TaskController uses instead
+// of TaskRepository: plain JDBC on the shard that holds the owner's tasks. A user's
+// reads and writes go to that shard only (and to where an older layout put their
+// tasks, while those haven't moved yet, see TaskShards.placesFor); admins, who
+// don't name an owner, fan out to every shard (TaskShards.scatter) and get one
+// merged result. Ids still come from the primary's tasks_id_seq, so they stay
+// unique across shards and a task keeps its id when it moves (ShardRebalancer).
+// Users, counters, tombstones and the rest stay on the primary.
+public class ShardedTasks {
+
+    // tasks_id_seq hands out blocks of 50 (Task's pooled generator uses the same ones)
+    private static final int ID_BLOCK = 50;
+    private static final String COLUMNS = "id, title, done, version, user_id";
+    private static final String COMPLETED = "completed_at = case when ? then coalesce(completed_at, current_timestamp) end";
+    private static final RowMapper<Stored> STORED = (rs, i) -> new Stored(rs.getLong(1), rs.getString(2),
+            rs.getBoolean(3), rs.getLong(4), rs.getLong(5));
+
+    private record Stored(long id, String title, boolean done, long version, long userId) {}
+
+    // a row and the shard it was read from
+    private record Copy(Shard shard, Stored row) {}
+
+    // the next row of one shard's page, for the k-way merge
+    private record Head(Copy copy, Iterator<Stored> rest) {}
+
+    private final TaskShards shards;
+    private final UserRepository userRepository;
+    private final JdbcTemplate primary;
+    // not synchronized: a virtual thread waiting on the sequence would pin its carrier
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId = 1;
+    private long maxId = 0;
+
+    public ShardedTasks(TaskShards shards, UserRepository userRepository, DataSource primary) {
+        this.shards = shards;
+        this.userRepository = userRepository;
+        this.primary = new JdbcTemplate(primary);
+    }
+
+    // keyset page of one user's tasks: index range scan on (user_id, id), on one
+    // shard unless some of their tasks are still to be moved
+    public List<TaskDTO> findPageByOwner(User owner, long after, int limit) {
+        Map<Shard, List<Stored>> pages = new LinkedHashMap<>();
+        for (Shard shard : shards.placesFor(owner.getId())) {
+            pages.put(shard, shard.jdbc().query(
+                    "select " + COLUMNS + " from tasks where user_id = ? and id > ? order by id limit ?",
+                    STORED, owner.getId(), after, limit));
+        }
+        return merge(pages, limit).stream()
+                .map(row -> new TaskDTO(row.id(), row.title(), row.done(), owner.getUsername(), row.version()))
+                .toList();
+    }
+
+    // Keyset page across every shard: each returns its first `limit` ids after the
+    // cursor (in parallel), a k-way merge on id keeps the first `limit` overall.
+    public List<TaskDTO> findPage(long after, int limit) {
+        List<Stored> merged = merge(shards.scatter(shard -> shard.jdbc()
+                .query("select " + COLUMNS + " from tasks where id > ? order by id limit ?", STORED, after, limit)),
+                limit);
+        Map<Long, String> usernames = usernames(merged);
+        return merged.stream()
+                .map(row -> new TaskDTO(row.id(), row.title(), row.done(), usernames.get(row.userId()), row.version()))
+                .toList();
+    }
+
+    // one JDBC batch on the owner's shard
+    public List<TaskDTO> insert(User owner, List<CreateTaskRequest> reqs) {
+        long[] ids = nextIds(reqs.size());
+        List<Object[]> rows = new ArrayList<>();
+        List<TaskDTO> created = new ArrayList<>();
+        for (int i = 0; i < reqs.size(); i++) {
+            CreateTaskRequest req = reqs.get(i);
+            rows.add(new Object[]{ids[i], req.getTitle(), req.isDone(), owner.getId(), req.isDone()});
+            created.add(new TaskDTO(ids[i], req.getTitle(), req.isDone(), owner.getUsername(), 0L));
+        }
+        Shard shard = shards.forUser(owner.getId());
+        shard.transaction().executeWithoutResult(status -> shard.jdbc().batchUpdate(
+                "insert into tasks (id, title, done, version, user_id, completed_at)"
+                        + " values (?, ?, ?, 0, ?, case when ? then current_timestamp end)", rows));
+        return created;
+    }
+
+    // rows as stored; wasDone == done
+    public Optional<TaskRow> findRowById(long id) {
+        return Optional.ofNullable(findRowsById(List.of(id)).get(id));
+    }
+
+    public Map<Long, TaskRow> findRowsById(Collection<Long> ids) {
+        Map<Long, Copy> copies = copies(ids);
+        Map<Long, String> usernames = usernames(copies.values().stream().map(Copy::row).toList());
+        Map<Long, TaskRow> byId = new LinkedHashMap<>();
+        copies.forEach((id, copy) -> byId.put(id, new TaskRow(id, copy.row().title(), copy.row().done(),
+                copy.row().version(), copy.row().userId(), usernames.get(copy.row().userId()), copy.row().done())));
+        return byId;
+    }
+
+    // Same contract as TaskRepositoryCustom: owner == null → any owner (admins),
+    // version == null → any version, empty → nothing matched. title == null keeps it.
+    public Optional<TaskRow> updateIfMatches(long id, User owner, Long version, String title, boolean done) {
+        return writeStored(id, owner, version, (shard, old) -> {
+            String newTitle = title != null ? title : old.title();
+            shard.jdbc().update("update tasks set title = ?, done = ?, " + COMPLETED
+                    + ", version = version + 1 where id = ?", newTitle, done, done, id);
+            return new TaskRow(id, newTitle, done, old.version() + 1, old.userId(),
+                    username(owner, old.userId()), old.done());
+        });
+    }
+
+    public Optional<TaskRow> setDoneIfMatches(long id, User owner, Long version, boolean done) {
+        return updateIfMatches(id, owner, version, null, done);
+    }
+
+    public Optional<TaskRow> deleteIfMatches(long id, User owner, Long version) {
+        return writeStored(id, owner, version, (shard, old) -> {
+            shard.jdbc().update("delete from tasks where id = ?", id);
+            return new TaskRow(id, old.title(), old.done(), old.version(), old.userId(),
+                    username(owner, old.userId()), old.done());
+        });
+    }
+
+    // Done flags for tasks the caller has already checked: one JDBC batch per shard,
+    // each shard its own transaction (a user's tasks share a shard, so a user's batch
+    // is still all-or-nothing, unless some of them are still to be moved). Each task
+    // is written where it is stored, see writeStored. Rows already in the requested
+    // state are left alone. Returns the rows that changed.
+    public List<TaskRow> setDoneAll(Collection<TaskRow> tasks, Map<Long, Boolean> done) {
+        Map<List<Shard>, List<TaskRow>> byPlaces = tasks.stream()
+                .collect(Collectors.groupingBy(task -> shards.placesFor(task.userId()), LinkedHashMap::new,
+                        Collectors.toList()));
+        List<TaskRow> changed = new ArrayList<>();
+        byPlaces.forEach((places, tasksThere) -> {
+            Map<Long, TaskRow> left = new LinkedHashMap<>();
+            tasksThere.forEach(task -> left.put(task.id(), task));
+            for (Shard shard : places) {
+                if (left.isEmpty()) {
+                    break;
+                }
+                changed.addAll(shard.transaction().execute(status -> {
+                    List<TaskRow> rows = shard.jdbc().queryForList("select id from tasks where id in ("
+                                    + placeholders(left.size()) + ") for update", Long.class, left.keySet().toArray())
+                            .stream().map(left::remove).toList();
+                    if (rows.isEmpty()) {
+                        return List.<TaskRow>of();
+                    }
+                    int[] counts = shard.jdbc().batchUpdate("update tasks set done = ?, " + COMPLETED
+                                    + ", version = version + 1 where id = ? and done <> ?",
+                            rows.stream().map(row -> {
+                                boolean value = done.get(row.id());
+                                return new Object[]{value, value, row.id(), value};
+                            }).toList());
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            ids.add(rows.get(i).id());
+                        }
+                    }
+                    if (ids.isEmpty()) {
+                        return List.<TaskRow>of();
+                    }
+                    Map<Long, String> usernames = rows.stream()
+                            .collect(Collectors.toMap(TaskRow::userId, TaskRow::username, (a, b) -> a));
+                    return shard.jdbc().query("select " + COLUMNS + " from tasks where id in ("
+                                    + placeholders(ids.size()) + ")", STORED, ids.toArray())
+                            .stream()
+                            .map(row -> new TaskRow(row.id(), row.title(), row.done(), row.version(), row.userId(),
+                                    usernames.get(row.userId()), !row.done()))
+                            .toList();
+                }));
+            }
+        });
+        return changed;
+    }
+
+    // user id → {total, done} over every shard, for the task_stats recount
+    public Map<Long, long[]> countsByUser() {
+        Map<Long, long[]> counts = new HashMap<>();
+        shards.scatter(shard -> shard.jdbc().query(
+                        "select user_id, count(*), sum(case when done then 1 else 0 end) from tasks group by user_id",
+                        (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}))
+                .values().forEach(rows -> rows.forEach(row -> counts.merge(row[0], new long[]{row[1], row[2]},
+                        (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]})));
+        return counts;
+    }
+
+    // A task caught mid-move by ShardRebalancer is on two shards: listed once, as
+    // the copy at the owner's oldest place (TaskShards.placesFor), the one writes go to.
+    private List<Stored> merge(Map<Shard, List<Stored>> pages, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> Long.compare(a.copy().row().id(), b.copy().row().id()));
+        pages.forEach((shard, page) -> {
+            Iterator<Stored> rows = page.iterator();
+            if (rows.hasNext()) {
+                heads.add(new Head(new Copy(shard, rows.next()), rows));
+            }
+        });
+        List<Copy> merged = new ArrayList<>();
+        // past `limit` only for the other copies of the last row
+        while (!heads.isEmpty() && (merged.size() < limit
+                || heads.peek().copy().row().id() == merged.get(merged.size() - 1).row().id())) {
+            Head head = heads.poll();
+            Copy last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last == null || last.row().id() != head.copy().row().id()) {
+                merged.add(head.copy());
+            } else if (rank(head.copy()) < rank(last)) {
+                merged.set(merged.size() - 1, head.copy());
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new Head(new Copy(head.copy().shard(), head.rest().next()), head.rest()));
+            }
+        }
+        return merged.stream().map(Copy::row).toList();
+    }
+
+    // by id, the copy that counts (see merge)
+    private Map<Long, Copy> copies(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Copy> byId = new LinkedHashMap<>();
+        shards.scatter(shard -> shard.jdbc()
+                        .query("select " + COLUMNS + " from tasks where id in (" + placeholders(ids.size()) + ")",
+                                STORED, ids.toArray()))
+                .forEach((shard, rows) -> rows.forEach(row -> byId.merge(row.id(), new Copy(shard, row),
+                        (a, b) -> rank(b) < rank(a) ? b : a)));
+        return byId;
+    }
+
+    private int rank(Copy copy) {
+        int place = shards.placesFor(copy.row().userId()).indexOf(copy.shard());
+        return place < 0 ? Integer.MAX_VALUE : place;
+    }
+
+    // The write runs on the first of the owner's places that has the row, in that
+    // shard's transaction with the row locked: the rebalancer's delete of a copied
+    // row waits for it, then finds a new version and leaves the row for its next
+    // chunk. Owner and version are checked on that copy only, a stale copy further
+    // on never takes the write.
+    private Optional<TaskRow> writeStored(long id, User owner, Long version, BiFunction<Shard, Stored, TaskRow> write) {
+        Long userId = owner != null ? owner.getId()
+                : Optional.ofNullable(copies(List.of(id)).get(id)).map(copy -> copy.row().userId()).orElse(null);
+        if (userId == null) {
+            return Optional.empty();
+        }
+        for (Shard shard : shards.placesFor(userId)) {
+            // null: not on this shard
+            Optional<TaskRow> written = shard.transaction().execute(status -> shard.jdbc()
+                    .query("select " + COLUMNS + " from tasks where id = ? for update", STORED, id).stream()
+                    .findFirst()
+                    .map(old -> (owner != null && old.userId() != owner.getId())
+                            || (version != null && old.version() != version)
+                            ? Optional.<TaskRow>empty()
+                            : Optional.of(write.apply(shard, old)))
+                    .orElse(null));
+            if (written != null) {
+                return written;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private String username(User owner, long userId) {
+        return owner != null ? owner.getUsername()
+                : userRepository.findById(userId).map(User::getUsername).orElse(null);
+    }
+
+    // owners from the primary (second-level cached), one lookup for the whole page
+    private Map<Long, String> usernames(List<Stored> rows) {
+        Set<Long> userIds = new HashSet<>();
+        rows.forEach(row -> userIds.add(row.userId()));
+        Map<Long, String> usernames = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> usernames.put(user.getId(), user.getUsername()));
+        return usernames;
+    }
+
+    // pooled like Hibernate's: sequence value v covers v-49..v
+    private long[] nextIds(int count) {
+        long[] ids = new long[count];
+        idLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (nextId > maxId) {
+                    maxId = primary.queryForObject("select nextval('tasks_id_seq')", Long.class);
+                    nextId = Math.max(1, maxId - ID_BLOCK + 1);
+                }
+                ids[i] = nextId++;
+            }
+        } finally {
+            idLock.unlock();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.todoapp.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// The task databases of sharded mode, by name, and which one holds a user's tasks
+// (ShardRing). Each shard has its own pool and transaction manager: a transaction
+// never spans two shards, nor a shard and the primary. scatter() runs a query on
+// all of them at once and waits for every answer up to `timeout`.
+//
+// Until ShardRebalancer has moved them, tasks can still be where an older layout
+// put them: on the primary (from before sharding was turned on, for as long as its
+// tasks table has rows) and on the owner's shard in the previous ring
+// (shards.previous-urls, set while a layout change is being rebalanced).
+// placesFor() lists them all, so reads see those tasks and writes find them.
+public class TaskShards implements DisposableBean {
+
+    public record Shard(String name, JdbcTemplate jdbc, TransactionTemplate transaction) {}
+
+    private final Map<String, Shard> shards = new TreeMap<>();
+    private final List<DataSource> dataSources;
+    private final ShardRing ring;
+    private final ShardRing previousRing;
+    private final Shard primary;
+    private final ExecutorService scatter;
+    private final Duration timeout;
+
+    private volatile boolean primaryHasTasks;
+
+    // `previous` is empty when the layout isn't changing; names in both maps are
+    // the same database. The primary's part joins the caller's transaction.
+    public TaskShards(Map<String, DataSource> current, Map<String, DataSource> previous, DataSource primary,
+                      PlatformTransactionManager primaryTransactions, int virtualNodes, int scatterThreads,
+                      Duration timeout) {
+        this.ring = new ShardRing(current.keySet(), virtualNodes);
+        this.previousRing = previous.isEmpty() ? null : new ShardRing(previous.keySet(), virtualNodes);
+        this.timeout = timeout;
+        Map<DataSource, Boolean> distinct = new IdentityHashMap<>();
+        Map<String, DataSource> byName = new LinkedHashMap<>(previous);
+        byName.putAll(current);
+        byName.forEach((name, dataSource) -> {
+            shards.put(name, new Shard(name, jdbc(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+            distinct.put(dataSource, Boolean.TRUE);
+        });
+        this.dataSources = List.copyOf(distinct.keySet());
+        this.primary = new Shard("primary", jdbc(primary), new TransactionTemplate(primaryTransactions));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scatter = Executors.newFixedThreadPool(scatterThreads, r -> {
+            Thread t = new Thread(r, "shard-scatter-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        refresh();
+    }
+
+    // where new tasks of the user go
+    public Shard forUser(long userId) {
+        return shards.get(ring.shardFor(userId));
+    }
+
+    // Everywhere the user's tasks may be, oldest placement first, forUser() last.
+    // A task caught mid-move is on two of them; the older copy is the one that
+    // counts until the rebalancer deletes it.
+    public List<Shard> placesFor(long userId) {
+        List<Shard> places = new ArrayList<>(3);
+        if (primaryHasTasks) {
+            places.add(primary);
+        }
+        if (previousRing != null) {
+            places.add(shards.get(previousRing.shardFor(userId)));
+        }
+        Shard current = forUser(userId);
+        if (!places.contains(current)) {
+            places.add(current);
+        }
+        return places;
+    }
+
+    // every shard database, current and previous layout (not the primary)
+    public Collection<Shard> all() {
+        return shards.values();
+    }
+
+    // all() plus the primary while it still has tasks: what scatter() asks
+    public List<Shard> sources() {
+        List<Shard> sources = new ArrayList<>();
+        if (primaryHasTasks) {
+            sources.add(primary);
+        }
+        sources.addAll(all());
+        return sources;
+    }
+
+    public boolean changingLayout() {
+        return previousRing != null;
+    }
+
+    // Picks up the primary running out of tasks when the rebalancer runs elsewhere;
+    // an empty primary costs one indexed probe per check, none per request.
+    @Scheduled(fixedDelayString = "${shards.primary-check-interval:1m}",
+            initialDelayString = "${shards.primary-check-interval:1m}")
+    public void refresh() {
+        primaryHasTasks = !primary.jdbc().queryForList("select id from tasks limit 1", Long.class).isEmpty();
+    }
+
+    // One result per source, by shard in the order of sources(); the first failure
+    // fails the whole call. The primary's part runs on the calling thread, on the
+    // connection of its transaction if it has one, not a second one from its pool.
+    public <T> Map<Shard, T> scatter(Function<Shard, T> query) {
+        List<Shard> sources = sources();
+        List<Future<T>> answers = new ArrayList<>();
+        for (Shard shard : sources) {
+            answers.add(shard == primary ? null : scatter.submit(() -> query.apply(shard)));
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Map<Shard, T> results = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                Future<T> answer = answers.get(i);
+                results.put(sources.get(i), answer == null ? query.apply(sources.get(i))
+                        : answer.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DataAccessResourceFailureException("Shard query failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new DataAccessResourceFailureException("Shards did not answer within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while waiting for the shards");
+        } finally {
+            answers.forEach(answer -> {
+                if (answer != null) {
+                    answer.cancel(true);
+                }
+            });
+        }
+    }
+
+    private JdbcTemplate jdbc(DataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.setQueryTimeout(Math.max(1, (int) timeout.toSeconds()));
+        return jdbc;
+    }
+
+    @Override
+    public void destroy() {
+        scatter.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
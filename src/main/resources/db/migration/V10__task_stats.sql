@@ -0,0 +1,20 @@
+-- Task counters per user, kept current by the task write paths (TaskStats) and
+-- reconciled against tasks periodically; GET /tasks/stats reads only these.
+CREATE TABLE task_stats (
+    user_id BIGINT PRIMARY KEY,
+    total BIGINT DEFAULT 0 NOT NULL,
+    done BIGINT DEFAULT 0 NOT NULL
+);
+
+INSERT INTO task_stats (user_id, total, done)
+SELECT u.id, COUNT(t.id), COUNT(CASE WHEN t.done THEN 1 END)
+FROM users u LEFT JOIN tasks t ON t.user_id = u.id
+GROUP BY u.id;
+
+-- net completions (done minus un-done) per user and UTC day; the key serves day ranges
+CREATE TABLE task_completions_daily (
+    completed_on DATE NOT NULL,
+    user_id BIGINT NOT NULL,
+    completed BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (completed_on, user_id)
+);
@@ -0,0 +1,15 @@
+-- When a task was last marked done; the archival job moves tasks done for longer
+-- than tasks.archive.after out of the hot table. Tasks already done count from now.
+ALTER TABLE tasks ADD COLUMN completed_at TIMESTAMP WITH TIME ZONE;
+UPDATE tasks SET completed_at = CURRENT_TIMESTAMP WHERE done = TRUE;
+
+-- Archived (completed) tasks, read only by GET /tasks/archive. No FK to users,
+-- same as task_tombstones; (user_id, id) serves the per-user keyset pages.
+CREATE TABLE tasks_archive (
+    id BIGINT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL,
+    completed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_tasks_archive_user_id_id ON tasks_archive (user_id, id);
@@ -0,0 +1,2 @@
+-- Per-user token version: bumping it invalidates every JWT issued before
+ALTER TABLE users ADD COLUMN token_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,22 @@
+-- Delta sync: every insert/update of a task takes the next value of one global
+-- sequence, deletes leave a tombstone carrying a value of the same sequence.
+-- GET /tasks/changes returns everything above the client's last value.
+CREATE SEQUENCE IF NOT EXISTS task_change_seq;
+
+-- the default numbers existing rows and covers inserts that bypass Hibernate
+ALTER TABLE tasks ADD COLUMN change_seq BIGINT DEFAULT nextval('task_change_seq') NOT NULL;
+
+-- no FK to tasks (the row is gone); user_id keeps the per-user delta query
+CREATE TABLE task_tombstones (
+    task_id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    change_seq BIGINT DEFAULT nextval('task_change_seq') NOT NULL,
+    deleted_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- highest tombstone sequence value compacted away; older sync tokens must resync
+CREATE TABLE task_sync_horizon (
+    id INT PRIMARY KEY,
+    compacted_seq BIGINT NOT NULL
+);
+INSERT INTO task_sync_horizon (id, compacted_seq) VALUES (1, 0);
@@ -0,0 +1,2 @@
+-- optimistic locking (Task.version, If-Match on task writes)
+ALTER TABLE tasks ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,7 @@
+-- Same search column as the primary's V5, for ShardedTaskSearch on Postgres shards.
+-- 'simple' config: lowercased words, no stemming or stop words. The generated
+-- column keeps itself up to date on every insert/update, including the
+-- rebalancer's copies; adding it rewrites the table once.
+ALTER TABLE tasks
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, ''))) STORED;
@@ -0,0 +1,3 @@
+-- Separate script: CONCURRENTLY can't share a transaction with the ALTER in V2.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_search_vector
+    ON tasks USING GIN (search_vector);
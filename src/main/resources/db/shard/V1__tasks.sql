@@ -0,0 +1,14 @@
+-- Schema of a task shard (shards.urls.*, see ShardConfig): only the tasks of the
+-- owners the ring assigns to it. Users stay on the primary, so no FK; ids are drawn
+-- from the primary's tasks_id_seq and never generated here.
+CREATE TABLE tasks (
+    id BIGINT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    done BOOLEAN DEFAULT FALSE NOT NULL,
+    user_id BIGINT NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+-- per-owner keyset pages and the rebalancer's per-owner moves
+CREATE INDEX idx_tasks_user_id_id ON tasks (user_id, id);
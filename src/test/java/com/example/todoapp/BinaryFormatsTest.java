@@ -0,0 +1,126 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The round trips commit their tasks.
+class BinaryFormatsTest extends SharedDatabaseTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new CBORMapper();
+    private final ObjectMapper smile = new SmileMapper();
+
+    @Test
+    void createAndListInEveryFormat() throws Exception {
+        RequestPostProcessor olga = owner(userRepository, "binary-olga");
+
+        JsonNode created = cbor.readTree(mockMvc.perform(post("/tasks").with(olga)
+                        .contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(Map.of("title", "from cbor", "done", true))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE))
+                .andReturn().getResponse().getContentAsByteArray());
+        assertEquals("from cbor", created.get("title").asText());
+        assertTrue(created.get("done").asBoolean());
+
+        JsonNode batch = smile.readTree(mockMvc.perform(post("/tasks/batch").with(olga)
+                        .contentType(SMILE).accept(SMILE)
+                        .content(smile.writeValueAsBytes(List.of(Map.of("title", "smile one"),
+                                Map.of("title", "smile two", "done", true)))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray());
+        assertEquals(2, batch.size());
+
+        JsonNode asJson = json.readTree(list(olga, MediaType.APPLICATION_JSON).getResponse().getContentAsByteArray());
+        MvcResult asCbor = list(olga, MediaType.APPLICATION_CBOR);
+        assertEquals(asJson, cbor.readTree(asCbor.getResponse().getContentAsByteArray()));
+        assertEquals(asJson, smile.readTree(list(olga, SMILE).getResponse().getContentAsByteArray()));
+        assertEquals(3, asJson.size());
+        // caches must keep the representations apart
+        assertTrue(asCbor.getResponse().getHeaders(HttpHeaders.VARY).toString().contains(HttpHeaders.ACCEPT));
+
+        // no Accept → JSON
+        mockMvc.perform(get("/tasks").with(olga))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+    }
+
+    @Test
+    void binaryBodiesAreSmallerThanJson() throws Exception {
+        Map<Integer, Map<String, Encoded>> report = new LinkedHashMap<>();
+        for (int size : new int[] {1, 100, 1000}) {
+            List<TaskDTO> tasks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                tasks.add(new TaskDTO((long) i, "Task number " + i, i % 3 == 0, "user" + (i % 50), (long) i % 4));
+            }
+            Map<String, Encoded> formats = new LinkedHashMap<>();
+            formats.put("json", encode(json, tasks));
+            formats.put("cbor", encode(cbor, tasks));
+            formats.put("smile", encode(smile, tasks));
+            report.put(size, formats);
+            int jsonSize = formats.get("json").bytes();
+            int cborSize = formats.get("cbor").bytes();
+            int smileSize = formats.get("smile").bytes();
+
+            assertTrue(cborSize < jsonSize, "cbor " + cborSize + " vs json " + jsonSize);
+            assertTrue(smileSize < jsonSize, "smile " + smileSize + " vs json " + jsonSize);
+        }
+        File out = new File("target/formats/binary-formats.json");
+        out.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(out, report);
+    }
+
+    private record Encoded(int bytes, long encodeMicros) {}
+
+    // size and a rough encode time; timing only goes to the report, JMH
+    // (TaskListSerializationBenchmark) is the place to compare speed
+    private static Encoded encode(ObjectMapper mapper, List<TaskDTO> tasks) throws Exception {
+        byte[] body = mapper.writeValueAsBytes(tasks);
+        int rounds = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            body = mapper.writeValueAsBytes(tasks);
+        }
+        long micros = (System.nanoTime() - start) / rounds / 1_000;
+        return new Encoded(body.length, micros);
+    }
+
+    private MvcResult list(RequestPostProcessor who, MediaType type) throws Exception {
+        return mockMvc.perform(get("/tasks").with(who).accept(type))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, type.toString()))
+                .andReturn();
+    }
+}
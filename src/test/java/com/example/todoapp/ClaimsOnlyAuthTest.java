@@ -0,0 +1,89 @@
+package com.example.todoapp;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "jwt.claims-only=true")
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles("test")
+class ClaimsOnlyAuthTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void meIsAnsweredFromTokenWithoutDatabase() throws Exception {
+        String username = "claims" + System.currentTimeMillis();
+        Cookie cookie = registerAndLogin(username);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mockMvc.perform(get("/auth/me").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(username))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void logoutAllRevokesOutstandingTokens() throws Exception {
+        String username = "revoked" + System.currentTimeMillis();
+        Cookie cookie = registerAndLogin(username);
+
+        // a plain logout only clears this browser's cookie
+        mockMvc.perform(post("/auth/logout").cookie(cookie))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/auth/me").cookie(cookie))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/auth/logout-all").cookie(cookie))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/auth/me").cookie(cookie))
+                .andExpect(status().isUnauthorized());
+
+        // a fresh login carries the new token version and is accepted again
+        Cookie fresh = login(username);
+        mockMvc.perform(get("/auth/me").cookie(fresh))
+                .andExpect(status().isOk());
+    }
+
+    private Cookie registerAndLogin(String username) throws Exception {
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"pw\"}"))
+                .andExpect(status().isOk());
+        return login(username);
+    }
+
+    private Cookie login(String username) throws Exception {
+        return mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"pw\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("JWT");
+    }
+}
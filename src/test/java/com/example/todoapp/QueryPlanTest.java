@@ -0,0 +1,173 @@
+package com.example.todoapp;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every query the repositories issue on the request paths against a large
+// seeded table and fails if the plan falls back to a full table scan, i.e. if a
+// migration or query change loses the index on one of the task access paths.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.todoapp.QueryPlanTest$CapturingInspector"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final int USERS = 200;
+    private static final int TASKS_PER_USER = 100;
+
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ArchivedTaskRepository archivedTaskRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    void seedLargeTables() {
+        List<Object[]> users = new ArrayList<>();
+        for (int u = 1; u <= USERS; u++) {
+            users.add(new Object[]{"plan-user-" + u, "x", "ROLE_USER"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, roles) VALUES (?, ?, ?)", users);
+
+        List<Object[]> tasks = new ArrayList<>();
+        jdbcTemplate.query("SELECT id FROM users WHERE username LIKE 'plan-user-%'", rs -> {
+            long userId = rs.getLong(1);
+            for (int t = 0; t < TASKS_PER_USER; t++) {
+                tasks.add(new Object[]{"task " + t, t % 3 == 0, userId});
+            }
+        });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO tasks (id, title, done, user_id) VALUES (NEXT VALUE FOR tasks_id_seq, ?, ?, ?)", tasks);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void taskRepositoryQueriesUseIndexes() throws Exception {
+        assertIndexed("findByUserUsername", () -> taskRepository.findByUserUsername("plan-user-7"));
+        assertIndexed("findPageByUsername", () -> taskRepository.findPageByUsername("plan-user-7", 0, Limit.of(50)));
+        assertIndexed("findPage", () -> taskRepository.findPage(0, Limit.of(50)));
+        assertIndexed("findAllWithUserByIdIn", () -> taskRepository.findAllWithUserByIdIn(List.of(1L, 2L, 3L)));
+        assertIndexed("findById", () -> taskRepository.findById(1L));
+        assertIndexed("findRowById", () -> taskRepository.findRowById(1L));
+        assertIndexed("findChangesByUsername", () -> taskRepository.findChangesByUsername("plan-user-7", 0, Limit.of(50)));
+        assertIndexed("findChanges", () -> taskRepository.findChanges(0, Limit.of(50)));
+        assertIndexed("maxChangeSeq", () -> taskRepository.maxChangeSeq());
+        assertIndexed("findCompletedBefore", () -> taskRepository.findCompletedBefore(
+                Instant.now(), Instant.EPOCH, 0, Limit.of(200)));
+    }
+
+    @Test
+    void archiveQueriesUseIndexes() throws Exception {
+        assertIndexed("findPageByUsername",
+                () -> archivedTaskRepository.findPageByUsername("plan-user-7", 0, Limit.of(50)));
+        assertIndexed("findPage", () -> archivedTaskRepository.findPage(0, Limit.of(50)));
+    }
+
+    @Test
+    void tombstoneQueriesUseIndexes() throws Exception {
+        assertIndexed("findChangesByUsername", () -> tombstoneRepository.findChangesByUsername("plan-user-7", 0, Limit.of(50)));
+        assertIndexed("findChanges", () -> tombstoneRepository.findChanges(0, Limit.of(50)));
+        assertIndexed("maxChangeSeq", () -> tombstoneRepository.maxChangeSeq());
+        assertIndexed("maxChangeSeqDeletedBefore",
+                () -> tombstoneRepository.maxChangeSeqDeletedBefore(Instant.now()));
+    }
+
+    @Test
+    void userRepositoryQueriesUseIndexes() throws Exception {
+        assertIndexed("findByUsername", () -> userRepository.findByUsername("plan-user-7"));
+        assertIndexed("findTokenVersionByUsername", () -> userRepository.findTokenVersionByUsername("plan-user-7"));
+        assertIndexed("incrementTokenVersion", () -> userRepository.incrementTokenVersion("plan-user-7"));
+    }
+
+    private void assertIndexed(String name, Runnable query) throws Exception {
+        // cold second-level/query cache, otherwise a warm lookup issues no SQL to explain
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        CapturingInspector.STATEMENTS.clear();
+        query.run();
+        List<String> statements = List.copyOf(CapturingInspector.STATEMENTS);
+        assertFalse(statements.isEmpty(), name + " issued no SQL");
+
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertTrue(!plan.contains("tableScan"), name + " scans a whole table:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+            // the plan doesn't depend on the values, only on their types
+            ParameterMetaData params = explain.getParameterMetaData();
+            for (int i = 1; i <= params.getParameterCount(); i++) {
+                switch (params.getParameterType(i)) {
+                    case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.NUMERIC, Types.DECIMAL ->
+                            explain.setLong(i, 1);
+                    case Types.BOOLEAN -> explain.setBoolean(i, true);
+                    case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                            explain.setTimestamp(i, Timestamp.from(Instant.now()));
+                    default -> explain.setString(i, "plan-user-1");
+                }
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        }
+    }
+}
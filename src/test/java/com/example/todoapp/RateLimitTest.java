@@ -0,0 +1,107 @@
+package com.example.todoapp;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Small budgets over a long period so nothing refills while the test runs; each
+// test uses its own client IP.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ratelimit;DB_CLOSE_DELAY=-1",
+        "rate-limit.enabled=true",
+        "rate-limit.auth.per-ip=3",
+        "rate-limit.auth.period=1h",
+        "rate-limit.tasks.per-ip=6",
+        "rate-limit.tasks.per-user=3",
+        "rate-limit.tasks.period=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void loginFloodFromOneAddressGets429() throws Exception {
+        RequestPostProcessor client = from("10.0.0.1");
+        for (int i = 2; i >= 0; i--) {
+            mockMvc.perform(post("/auth/login").with(client)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\":\"nobody\",\"password\":\"guess\"}"))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(header().string("RateLimit-Limit", "3"))
+                    .andExpect(header().string("RateLimit-Remaining", String.valueOf(i)));
+        }
+
+        mockMvc.perform(post("/auth/login").with(client)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"nobody\",\"password\":\"guess\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1200"))
+                .andExpect(header().string("RateLimit-Remaining", "0"))
+                .andExpect(header().string("RateLimit-Reset", "3600"))
+                .andExpect(jsonPath("$.error").exists());
+
+        // reads of /auth/me and other addresses are not affected
+        mockMvc.perform(get("/auth/me").with(client)).andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/auth/login").with(from("10.0.0.2"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"nobody\",\"password\":\"guess\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void eachUserHasABudgetWithinTheAddressBudget() throws Exception {
+        RequestPostProcessor office = from("10.0.1.1");
+        Cookie alice = registerAndLogin("limit-alice", from("10.0.1.2"));
+        Cookie bob = registerAndLogin("limit-bob", from("10.0.1.3"));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/tasks").with(office).cookie(alice)).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/tasks").with(office).cookie(alice))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+        // bob behind the same address still has his own budget...
+        mockMvc.perform(get("/tasks").with(office).cookie(bob)).andExpect(status().isOk());
+        // ...and a forged token drains only a bucket of its own
+        mockMvc.perform(get("/tasks").with(office).cookie(new Cookie("JWT", "forged")))
+                .andExpect(status().isForbidden());
+        // until the address budget (6) is spent
+        mockMvc.perform(get("/tasks").with(office).cookie(bob)).andExpect(status().isTooManyRequests());
+    }
+
+    private Cookie registerAndLogin(String username, RequestPostProcessor client) throws Exception {
+        String body = "{\"username\":\"" + username + "\",\"password\":\"pw\"}";
+        mockMvc.perform(post("/auth/register").with(client).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+        Cookie jwt = mockMvc.perform(post("/auth/login").with(client).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("JWT");
+        // until JwtAuthFilter has verified a token once, it is charged under its own hash
+        mockMvc.perform(get("/auth/me").with(client).cookie(jwt)).andExpect(status().isOk());
+        return jwt;
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.todoapp;
+
+import com.example.todoapp.replica.ReplicaHealth;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two H2 databases stand in for primary and replica. "Replication" is a copy of
+// the primary (replicate()); rows inserted into the replica afterwards show which
+// database a read went to. The lag the health probe sees comes from a table the
+// test controls; probes run only when the test calls check().
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rwprimary;DB_CLOSE_DELAY=-1",
+        "replica.datasource.url=jdbc:h2:mem:rwreplica;DB_CLOSE_DELAY=-1",
+        "replica.lag-query=select seconds from replica_lag",
+        "replica.max-lag=5s",
+        "replica.read-your-writes=1m",
+        "replica.check-interval=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReplicaHealth replicaHealth;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsUseTheReplicaUntilTheUserWrites() throws Exception {
+        RequestPostProcessor rita = owner(userRepository, "replica-rita");
+        replicate(0);
+        long userId = userRepository.findByUsername("replica-rita").orElseThrow().getId();
+        replica().update("INSERT INTO tasks (id, title, done, user_id) VALUES (900001, 'only on the replica', FALSE, ?)",
+                userId);
+
+        assertEquals(List.of("only on the replica"), titles(rita));
+
+        mockMvc.perform(post("/tasks").with(rita)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"written\",\"done\":false}"))
+                .andExpect(status().isOk());
+        assertEquals(1, primary().queryForObject("SELECT count(*) FROM tasks WHERE title = 'written'", Integer.class));
+        assertEquals(0, replica().queryForObject("SELECT count(*) FROM tasks WHERE title = 'written'", Integer.class));
+
+        // read-your-writes: back on the primary, which has the new task and not the replica's row
+        assertEquals(List.of("written"), titles(rita));
+    }
+
+    @Test
+    void laggingOrBrokenReplicaFallsBackToThePrimary() throws Exception {
+        RequestPostProcessor lou = owner(userRepository, "replica-lou");
+        RequestPostProcessor admin = user("replica-admin").roles("ADMIN");
+        replicate(0);
+        long userId = userRepository.findByUsername("replica-lou").orElseThrow().getId();
+        replica().update("INSERT INTO tasks (id, title, done, user_id) VALUES (900002, 'only on the replica', FALSE, ?)",
+                userId);
+
+        assertTrue(replicaHealth.usable());
+        assertEquals(List.of("only on the replica"), titles(lou));
+
+        replica().update("UPDATE replica_lag SET seconds = 60");
+        replicaHealth.check();
+        assertFalse(replicaHealth.usable());
+        // primary again; the replica read above was not put into the query cache
+        assertTrue(titles(lou).isEmpty());
+        mockMvc.perform(get("/actuator/health/replica").with(admin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UNKNOWN"))
+                .andExpect(jsonPath("$.details.reads").value("primary"));
+
+        replica().execute("DROP TABLE replica_lag");
+        replicaHealth.check();
+        assertFalse(replicaHealth.usable());
+        assertTrue(titles(lou).isEmpty());
+    }
+
+    // copies the primary into the replica, which then reports `lag` seconds
+    private void replicate(int lag) {
+        List<String> script = primary().queryForList("SCRIPT", String.class);
+        replica().execute("DROP ALL OBJECTS");
+        script.forEach(replica()::execute);
+        replica().execute("CREATE TABLE replica_lag (seconds INT)");
+        replica().update("INSERT INTO replica_lag VALUES (?)", lag);
+        replicaHealth.check();
+    }
+
+    private List<String> titles(RequestPostProcessor who) throws Exception {
+        JsonNode tasks = objectMapper.readTree(mockMvc.perform(get("/tasks").with(who))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        List<String> titles = new ArrayList<>();
+        tasks.forEach(task -> titles.add(task.get("title").asText()));
+        return titles;
+    }
+
+    private JdbcTemplate primary() {
+        return new JdbcTemplate(primaryDataSource);
+    }
+
+    private JdbcTemplate replica() {
+        return new JdbcTemplate(replicaDataSource);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.todoapp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: entries only reach the second-level cache once a write has
+// committed, so every step here runs (and commits) in its own transaction.
+class SecondLevelCacheTest extends SharedDatabaseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void warmUserLookupIssuesNoSql() {
+        String username = "cached-" + System.nanoTime();
+        saveUser(username);
+
+        userRepository.findByUsername(username).orElseThrow();
+        statistics.clear();
+        User user = userRepository.findByUsername(username).orElseThrow();
+
+        assertEquals(username, user.getUsername());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertTrue(meterRegistry.get("hibernate.cache.natural.id.requests").tag("result", "hit")
+                .functionCounter().count() > 0);
+    }
+
+    @Test
+    @WithMockUser(username = "cached-lists")
+    void taskListIsServedFromQueryCacheUntilAWrite() throws Exception {
+        User owner = userRepository.findByUsername("cached-lists").orElseGet(() -> saveUser("cached-lists"));
+        Task task = taskRepository.save(new Task("cached task", owner));
+
+        mockMvc.perform(get("/tasks")).andExpect(status().isOk());
+        statistics.clear();
+        mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].done").value(false));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+
+        // a write through the controller invalidates the cached list
+        mockMvc.perform(patch("/tasks/" + task.getId() + "/done")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isOk());
+        statistics.clear();
+        mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].done").value(true));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private User saveUser(String username) {
+        User user = new User(username, "{noop}pw");
+        user.setRoles("ROLE_USER");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.todoapp;
+
+import com.example.todoapp.shard.ShardRebalancer;
+import com.example.todoapp.shard.TaskShards;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Three H2 databases as task shards next to the primary H2, c just added to a and b.
+// Which shard a row is on is checked directly with SQL; rows put on the primary or
+// the wrong shard by hand stand in for data from before sharding / before c.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shardprimary;DB_CLOSE_DELAY=-1",
+        "shards.enabled=true",
+        "shards.urls.a=jdbc:h2:mem:shard-a;DB_CLOSE_DELAY=-1",
+        "shards.urls.b=jdbc:h2:mem:shard-b;DB_CLOSE_DELAY=-1",
+        "shards.urls.c=jdbc:h2:mem:shard-c;DB_CLOSE_DELAY=-1",
+        "shards.previous-urls.a=jdbc:h2:mem:shard-a;DB_CLOSE_DELAY=-1",
+        "shards.previous-urls.b=jdbc:h2:mem:shard-b;DB_CLOSE_DELAY=-1",
+        "shards.rebalance-chunk-size=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShardingTest {
+
+    private static final RequestPostProcessor ADMIN = user("shard-admin").roles("ADMIN");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskShards shards;
+
+    @Autowired
+    private ShardRebalancer rebalancer;
+
+    @Autowired
+    private TaskStats taskStats;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void eachUsersTasksLiveOnTheirShardOnly() throws Exception {
+        // enough users to cover every shard
+        Set<String> used = new HashSet<>();
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; used.size() < shards.all().size(); i++) {
+            String username = "placed-" + i;
+            owner(userRepository, username);
+            usernames.add(username);
+            used.add(shardOf(username).name());
+        }
+
+        for (String username : usernames) {
+            RequestPostProcessor who = user(username).roles("USER");
+            create(who, username + " one", false);
+            mockMvc.perform(post("/tasks/batch").with(who)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"title\":\"" + username + " two\",\"done\":true},"
+                                    + "{\"title\":\"" + username + " three\",\"done\":false}]"))
+                    .andExpect(status().isOk());
+        }
+
+        for (String username : usernames) {
+            long userId = userId(username);
+            for (TaskShards.Shard shard : shards.all()) {
+                int expected = shard.equals(shardOf(username)) ? 3 : 0;
+                assertEquals(expected, count(shard.jdbc(), userId), username + " on " + shard.name());
+            }
+            JsonNode listed = body(mockMvc.perform(get("/tasks").with(user(username).roles("USER")))
+                    .andExpect(status().isOk()).andReturn());
+            assertEquals(List.of(username + " one", username + " two", username + " three"), titles(listed));
+            assertEquals(3, stats(user(username).roles("USER")).get("total").asLong());
+            assertEquals(1, stats(user(username).roles("USER")).get("done").asLong());
+        }
+        assertEquals(0, primary.queryForObject("SELECT count(*) FROM tasks", Integer.class));
+    }
+
+    @Test
+    void writesAreCheckedOnTheOwnersShard() throws Exception {
+        RequestPostProcessor olga = owner(userRepository, "shard-olga");
+        RequestPostProcessor pete = owner(userRepository, "shard-pete");
+        long id = create(olga, "olga's", false);
+
+        mockMvc.perform(patch("/tasks/" + id + "/done").with(olga).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        mockMvc.perform(put("/tasks/" + id).with(olga).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"stale\",\"done\":true}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/tasks/" + id).with(pete)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"mine now\",\"done\":false}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/tasks/999999999").with(olga)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"nothing\",\"done\":false}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/tasks/batch/done").with(pete)
+                        .contentType(MediaType.APPLICATION_JSON).content("[{\"id\":" + id + ",\"done\":false}]"))
+                .andExpect(status().isForbidden());
+
+        // admins don't name the owner: the task is found on whichever shard has it
+        mockMvc.perform(put("/tasks/" + id).with(ADMIN)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"renamed\",\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+        JsonNode batch = body(mockMvc.perform(patch("/tasks/batch/done").with(olga)
+                        .contentType(MediaType.APPLICATION_JSON).content("[{\"id\":" + id + ",\"done\":false}]"))
+                .andExpect(status().isOk()).andReturn());
+        assertEquals(3, batch.get(0).get("version").asLong());
+        assertEquals(0, stats(olga).get("done").asLong());
+
+        mockMvc.perform(delete("/tasks/" + id).with(ADMIN)).andExpect(status().isOk());
+        assertEquals(0, count(shardOf("shard-olga").jdbc(), userId("shard-olga")));
+        assertEquals(0, stats(olga).get("total").asLong());
+    }
+
+    @Test
+    void adminListingMergesEveryShardInIdOrder() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (String username : List.of("merge-a", "merge-b", "merge-c", "merge-d")) {
+            RequestPostProcessor who = owner(userRepository, username);
+            for (int i = 0; i < 3; i++) {
+                created.add(create(who, username + " " + i, false));
+            }
+        }
+        // a copy left on another shard by an interrupted move
+        long copied = created.get(0);
+        TaskShards.Shard elsewhere = shards.all().stream()
+                .filter(shard -> !shard.equals(shardOf("merge-a"))).findFirst().orElseThrow();
+        elsewhere.jdbc().update("INSERT INTO tasks (id, title, done, user_id) VALUES (?, 'copy', FALSE, ?)",
+                copied, userId("merge-a"));
+
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(cursor == null
+                            ? get("/tasks").with(ADMIN).param("limit", "5")
+                            : get("/tasks").with(ADMIN).param("limit", "5").param("after", cursor))
+                    .andExpect(status().isOk()).andReturn();
+            body(page).forEach(task -> listed.add(task.get("id").asLong()));
+            cursor = page.getResponse().getHeader(TaskController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(listed.stream().sorted().distinct().toList(), listed);
+        assertTrue(listed.containsAll(created));
+        elsewhere.jdbc().update("DELETE FROM tasks WHERE id = ? AND title = 'copy'", copied);
+    }
+
+    @Test
+    void rebalancingMovesTasksToTheirShard() throws Exception {
+        owner(userRepository, "moved-mia");
+        owner(userRepository, "moved-max");
+        long mia = userId("moved-mia");
+        long max = userId("moved-max");
+
+        // from before sharding was turned on
+        for (int i = 1; i <= 5; i++) {
+            primary.update("INSERT INTO tasks (id, title, done, user_id) VALUES (?, ?, FALSE, ?)",
+                    900_000 + i, "old " + i, mia);
+        }
+        // on a shard that no longer owns max
+        TaskShards.Shard wrong = shards.all().stream()
+                .filter(shard -> !shard.equals(shardOf("moved-max"))).findFirst().orElseThrow();
+        wrong.jdbc().update("INSERT INTO tasks (id, title, done, version, user_id) VALUES (900100, 'misplaced', TRUE, 4, ?)",
+                max);
+
+        assertEquals(6, rebalancer.rebalance());
+        assertEquals(0, rebalancer.rebalance());
+
+        assertEquals(0, primary.queryForObject("SELECT count(*) FROM tasks", Integer.class));
+        assertEquals(0, count(wrong.jdbc(), max));
+        assertEquals(5, count(shardOf("moved-mia").jdbc(), mia));
+        assertEquals(4, shardOf("moved-max").jdbc()
+                .queryForObject("SELECT version FROM tasks WHERE id = 900100", Long.class));
+        assertEquals(List.of("old 1", "old 2", "old 3", "old 4", "old 5"),
+                titles(body(mockMvc.perform(get("/tasks").with(user("moved-mia").roles("USER"))).andReturn())));
+
+        // the counters follow with the next recount
+        taskStats.reconcile();
+        assertEquals(5, stats(user("moved-mia").roles("USER")).get("total").asLong());
+        assertEquals(1, stats(user("moved-max").roles("USER")).get("done").asLong());
+    }
+
+    @Test
+    void tasksFromBeforeShardingStayReachableUntilMoved() throws Exception {
+        RequestPostProcessor ruth = owner(userRepository, "before-ruth");
+        long userId = userId("before-ruth");
+        for (int i = 1; i <= 3; i++) {
+            primary.update("INSERT INTO tasks (id, title, done, user_id) VALUES (?, ?, FALSE, ?)",
+                    910_000 + i, "kept " + i, userId);
+        }
+        shards.refresh();
+
+        mockMvc.perform(patch("/tasks/910001/done").with(ruth).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        assertEquals(1, primary.queryForObject("SELECT version FROM tasks WHERE id = 910001", Long.class));
+        long added = create(ruth, "new", false);
+        assertEquals(1, count(shardOf("before-ruth").jdbc(), userId));
+        // in id order, the hand-picked ids are the higher ones
+        assertEquals(List.of("new", "kept 1", "kept 2", "kept 3"),
+                titles(body(mockMvc.perform(get("/tasks").with(ruth)).andExpect(status().isOk()).andReturn())));
+        mockMvc.perform(delete("/tasks/910003").with(ADMIN)).andExpect(status().isOk());
+
+        assertEquals(2, rebalancer.rebalance());
+        assertEquals(3, count(shardOf("before-ruth").jdbc(), userId));
+        assertTrue(shards.placesFor(userId).stream().noneMatch(shard -> shard.name().equals("primary")));
+        JsonNode listed = body(mockMvc.perform(get("/tasks").with(ruth)).andExpect(status().isOk()).andReturn());
+        assertEquals(List.of("new", "kept 1", "kept 2"), titles(listed));
+        assertEquals(added, listed.get(0).get("id").asLong());
+        assertTrue(listed.get(1).get("done").asBoolean());
+    }
+
+    @Test
+    void aTaskDeletedDuringAMoveStaysDeleted() throws Exception {
+        RequestPostProcessor vera = owner(userRepository, "moving-vera");
+        long userId = userId("moving-vera");
+        for (int i = 1; i <= 3; i++) {
+            primary.update("INSERT INTO tasks (id, title, done, user_id) VALUES (?, ?, FALSE, ?)",
+                    930_000 + i, "task " + i, userId);
+        }
+        shards.refresh();
+
+        // the owner deletes 930002 while its chunk is being copied to the target
+        JdbcTemplate target = shardOf("moving-vera").jdbc();
+        CompletableFuture<Integer> deleted = new CompletableFuture<>();
+        DeleteDuringMove.hook = () -> {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    deleted.complete(mockMvc.perform(delete("/tasks/930002").with(vera))
+                            .andReturn().getResponse().getStatus());
+                } catch (Exception e) {
+                    deleted.completeExceptionally(e);
+                }
+            });
+            // time enough for the delete to finish if nothing holds it up
+            try {
+                deleted.get(200, TimeUnit.MILLISECONDS);
+            } catch (Exception ignored) {
+            }
+        };
+        target.execute("CREATE TRIGGER delete_during_move AFTER INSERT ON tasks FOR EACH ROW CALL '"
+                + DeleteDuringMove.class.getName() + "'");
+        try {
+            assertEquals(3, rebalancer.rebalance());
+        } finally {
+            DeleteDuringMove.hook = null;
+            target.execute("DROP TRIGGER delete_during_move");
+        }
+
+        assertEquals(200, deleted.get(5, TimeUnit.SECONDS));
+        assertEquals(0, count(primary, userId));
+        for (TaskShards.Shard shard : shards.all()) {
+            assertEquals(0, shard.jdbc().queryForObject("SELECT count(*) FROM tasks WHERE id = 930002", Integer.class));
+        }
+        assertEquals(2, count(target, userId));
+        assertEquals(List.of("task 1", "task 3"),
+                titles(body(mockMvc.perform(get("/tasks").with(vera)).andExpect(status().isOk()).andReturn())));
+    }
+
+    @Test
+    void usersMovedToTheNewShardKeepTheirTasksUntilRebalanced() throws Exception {
+        String username = null;
+        for (int i = 0; username == null; i++) {
+            owner(userRepository, "moving-" + i);
+            if (shards.placesFor(userId("moving-" + i)).size() == 2) {
+                username = "moving-" + i;
+            }
+        }
+        RequestPostProcessor who = user(username).roles("USER");
+        long userId = userId(username);
+        TaskShards.Shard before = shards.placesFor(userId).get(0);
+        TaskShards.Shard after = shardOf(username);
+        before.jdbc().update("INSERT INTO tasks (id, title, done, user_id) VALUES (920001, 'old', FALSE, ?)", userId);
+
+        mockMvc.perform(put("/tasks/920001").with(who).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"old, edited\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        // a stale copy on the new shard, as an interrupted move leaves it, never takes a write
+        after.jdbc().update("INSERT INTO tasks (id, title, done, user_id) VALUES (920001, 'old', FALSE, ?)", userId);
+        mockMvc.perform(put("/tasks/920001").with(who).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"lost\",\"done\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        create(who, "new", false);
+        assertEquals(List.of("new", "old, edited"),
+                titles(body(mockMvc.perform(get("/tasks").with(who)).andExpect(status().isOk()).andReturn())));
+
+        assertEquals(1, rebalancer.rebalance());
+        assertEquals(0, count(before.jdbc(), userId));
+        assertEquals(2, count(after.jdbc(), userId));
+        assertEquals(List.of("new", "old, edited"),
+                titles(body(mockMvc.perform(get("/tasks").with(who)).andExpect(status().isOk()).andReturn())));
+    }
+
+    @Test
+    void deltaSyncSendsClientsToAFullReload() throws Exception {
+        mockMvc.perform(get("/tasks/changes").with(owner(userRepository, "shard-sync"))).andExpect(status().isGone());
+    }
+
+    @Test
+    void searchIsOffWithoutPostgresShards() throws Exception {
+        mockMvc.perform(get("/tasks/search").param("q", "milk").with(owner(userRepository, "shard-search")))
+                .andExpect(status().isNotImplemented());
+    }
+
+    private TaskShards.Shard shardOf(String username) {
+        return shards.forUser(userId(username));
+    }
+
+    private long userId(String username) {
+        return userRepository.findByUsername(username).orElseThrow().getId();
+    }
+
+    private static int count(JdbcTemplate jdbc, long userId) {
+        return jdbc.queryForObject("SELECT count(*) FROM tasks WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private static List<String> titles(JsonNode tasks) {
+        List<String> titles = new ArrayList<>();
+        tasks.forEach(task -> titles.add(task.get("title").asText()));
+        return titles;
+    }
+
+    private JsonNode body(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode stats(RequestPostProcessor who) throws Exception {
+        return body(mockMvc.perform(get("/tasks/stats").with(who)).andExpect(status().isOk()).andReturn());
+    }
+
+    private long create(RequestPostProcessor who, String title, boolean done) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/tasks").with(who)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":" + done + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    // Runs hook when 930001 is inserted, on the thread (and in the transaction) of the insert.
+    public static class DeleteDuringMove implements Trigger {
+
+        static volatile Runnable hook;
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            Runnable run = hook;
+            if (run != null && ((Number) newRow[0]).longValue() == 930_001) {
+                run.run();
+            }
+        }
+    }
+}
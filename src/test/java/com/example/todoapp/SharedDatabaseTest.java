@@ -0,0 +1,15 @@
+package com.example.todoapp;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// For test classes that commit their writes (events after commit, counters, caches)
+// and need no properties of their own: they share one context and one H2 database,
+// apart from the rolled-back tests on the default one. Rows of the other classes are
+// there too, so each class uses its own usernames and only asserts on its own data.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:shared;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+abstract class SharedDatabaseTest {
+}
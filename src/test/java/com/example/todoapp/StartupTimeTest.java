@@ -0,0 +1,230 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Time-to-ready of the app on H2, until /actuator/health answers. Opt-in like the
+// load tests: mvn -Pstartup-test test.
+//
+// bootsInProcess: SpringApplication.run with and without the fast-start profile, in
+// the test JVM. Checks what lazy initialization still starts eagerly; the times
+// (target/startup/startup.json) include warming up the JVM for the first boot and
+// not the second, so they are recorded, not checked.
+//
+// packagedJarWithAotAndCds: the mode the image ships. Needs a jar from
+// mvn -Pfast-start package first, skipped otherwise. The jar is extracted and
+// trained like in the Dockerfile, then each mode is a fresh JVM timed from launch,
+// startup.runs times (default 3, taking the fastest; the modes take turns): the
+// plain jar, and the jar with AOT, the CDS archive and the fast-start profile.
+// The latter has to be ready within startup.budget (default 15s, the start period
+// of the Dockerfile's HEALTHCHECK) and in at most startup.max-ratio (default 0.75)
+// of the plain jar's time. Results and logs in target/startup/. The Dockerfile's
+// JDK (21) may not be the one running the tests.
+@Tag("startup")
+class StartupTimeTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/com/example/todoapp/TodoappApplication__ApplicationContextInitializer.class";
+
+    private final Duration budget = Duration.parse("PT" + System.getProperty("startup.budget", "15s"));
+    private final double maxRatio = Double.parseDouble(System.getProperty("startup.max-ratio", "0.75"));
+    private final int runs = Integer.getInteger("startup.runs", 3);
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private record Started(ConfigurableApplicationContext context, long readyMs) implements AutoCloseable {
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+
+    @Test
+    void bootsInProcess() throws Exception {
+        Map<String, Long> readyMs = new LinkedHashMap<>();
+
+        try (Started started = start("startup-fast", "fast-start")) {
+            readyMs.put("fast-start", started.readyMs());
+            // scheduled jobs and Flyway are up, the rest waits for first use
+            ConfigurableApplicationContext ctx = started.context();
+            assertTrue(ctx.getBeanFactory().containsSingleton("taskArchiver"));
+            assertTrue(ctx.getBeanFactory().containsSingleton("flyway"));
+            assertFalse(ctx.getBeanFactory().containsSingleton("taskController"));
+            assertServes(port(ctx));
+        }
+        try (Started started = start("startup-default")) {
+            readyMs.put("default", started.readyMs());
+            assertServes(port(started.context()));
+        }
+
+        report("startup.json", Map.of("readyMs", readyMs));
+    }
+
+    @Test
+    void packagedJarWithAotAndCds() throws Exception {
+        File jar = packagedJar();
+        assumeTrue(jar != null, "no jar with AOT bean definitions in target/, run mvn -Pfast-start package first");
+
+        File dir = new File("target/startup/extracted");
+        run(dir.getParentFile(), "extract", javaCommand("-Djarmode=tools", "-jar", jar.getAbsolutePath(),
+                "extract", "--force", "--destination", dir.getAbsolutePath()));
+        String app = new File(dir, jar.getName()).getAbsolutePath();
+        run(dir, "training", javaCommand("-XX:ArchiveClassesAtExit=app.jsa", "-Xlog:cds=off",
+                "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh", "-jar", app,
+                "--spring.profiles.active=fast-start", "--spring.datasource.url=jdbc:h2:mem:training",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"));
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("jar", List.of("-jar", app));
+        modes.put("aot-cds-fast-start", List.of("-XX:SharedArchiveFile=app.jsa", "-Xlog:cds=off",
+                "-Dspring.aot.enabled=true", "-jar", app, "--spring.profiles.active=fast-start"));
+        Map<String, Long> readyMs = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run++) {
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                readyMs.merge(mode.getKey(), timeToReady(dir, mode.getKey(), mode.getValue()), Math::min);
+            }
+        }
+
+        report("startup-packaged.json", Map.of("readyMs", readyMs, "budgetMs", budget.toMillis(),
+                "maxRatio", maxRatio, "runs", runs));
+        assertTrue(readyMs.get("aot-cds-fast-start") <= budget.toMillis(), "AOT + CDS took "
+                + readyMs.get("aot-cds-fast-start") + " ms to get ready, budget " + budget.toMillis() + " ms");
+        assertTrue(readyMs.get("aot-cds-fast-start") <= readyMs.get("jar") * maxRatio,
+                "AOT + CDS took " + readyMs.get("aot-cds-fast-start") + " ms, the plain jar "
+                        + readyMs.get("jar") + " ms, expected at most " + maxRatio + " of it");
+    }
+
+    private Started start(String database, String... profiles) {
+        String[] active = new String[profiles.length + 1];
+        active[0] = "test";
+        System.arraycopy(profiles, 0, active, 1, profiles.length);
+
+        long started = System.nanoTime();
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(TodoappApplication.class)
+                .profiles(active)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.SQL=WARN");
+        return new Started(ctx, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // launch to the first healthy answer; the process is stopped afterwards
+    private long timeToReady(File dir, String mode, List<String> args) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = javaCommand(args.toArray(String[]::new));
+        command.addAll(List.of("--server.port=" + port, "--spring.datasource.url=jdbc:h2:mem:" + mode));
+
+        long started = System.nanoTime();
+        Process process = launch(dir, mode, command);
+        try {
+            long deadline = started + budget.toNanos() * 4;
+            while (!healthy(port)) {
+                assertTrue(process.isAlive(), mode + " exited, see target/startup/" + mode + ".log");
+                assertTrue(System.nanoTime() < deadline, mode + " not ready, see target/startup/" + mode + ".log");
+                Thread.sleep(20);
+            }
+            long readyMs = (System.nanoTime() - started) / 1_000_000;
+            assertServes(port);
+            return readyMs;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private boolean healthy(int port) throws InterruptedException {
+        try {
+            return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                    .build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ready means ready: health is UP and a request that needs the database goes through
+    private void assertServes(int port) throws Exception {
+        String base = "http://localhost:" + port;
+        assertEquals(200, http.send(HttpRequest.newBuilder(URI.create(base + "/actuator/health")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(200, http.send(HttpRequest.newBuilder(URI.create(base + "/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"startup\",\"password\":\"pw\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private static void report(String fileName, Map<String, Object> report) throws IOException {
+        File out = new File("target/startup/" + fileName);
+        out.getParentFile().mkdirs();
+        JSON.writeValue(out, report);
+    }
+
+    private static int port(ConfigurableApplicationContext ctx) {
+        return Integer.parseInt(ctx.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private static File packagedJar() throws IOException {
+        File[] jars = new File("target").listFiles(f -> f.getName().endsWith(".jar"));
+        if (jars == null) {
+            return null;
+        }
+        for (File jar : jars) {
+            try (JarFile contents = new JarFile(jar)) {
+                if (contents.getEntry(AOT_INITIALIZER) != null) {
+                    return jar;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> javaCommand(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(List.of(args));
+        return command;
+    }
+
+    private static Process launch(File dir, String name, List<String> command) throws IOException {
+        File log = new File("target/startup/" + name + ".log");
+        log.getParentFile().mkdirs();
+        dir.mkdirs();
+        return new ProcessBuilder(command)
+                .directory(dir)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+
+    private static void run(File dir, String name, List<String> command) throws Exception {
+        Process process = launch(dir, name, command);
+        assertEquals(0, process.waitFor(), name + " failed, see target/startup/" + name + ".log");
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The scheduled run is pushed out of the way; the test calls archive() itself.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:taskarchive;DB_CLOSE_DELAY=-1",
+        "tasks.archive.after=1h",
+        "tasks.archive.chunk-size=2",
+        "tasks.archive.pause=0ms",
+        "tasks.archive.interval=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TaskArchiveTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskArchiver archiver;
+
+    @Autowired
+    private TaskTombstoneRepository tombstones;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Conflicts conflicts;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Plays a writer that gets to a task while its chunk is being moved: when the
+    // archiver publishes the DELETED event for `trigger` it bumps the version of
+    // `victim`, in the archiver's transaction, so the chunk's flush fails the version check.
+    static class Conflicts implements ApplicationListener<PayloadApplicationEvent<TaskChangedEvent>> {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile long trigger;
+        private volatile long victim;
+
+        Conflicts(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        void on(long trigger, long victim, int times) {
+            this.trigger = trigger;
+            this.victim = victim;
+            remaining.set(times);
+        }
+
+        @Override
+        public void onApplicationEvent(PayloadApplicationEvent<TaskChangedEvent> event) {
+            TaskChangedEvent change = event.getPayload();
+            if (change.type() == TaskChangedEvent.Type.DELETED && change.taskId() == trigger
+                    && remaining.getAndDecrement() > 0) {
+                jdbcTemplate.update("UPDATE tasks SET version = version + 1 WHERE id = ?", victim);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class ConflictConfig {
+        @Bean
+        Conflicts conflicts(JdbcTemplate jdbcTemplate) {
+            return new Conflicts(jdbcTemplate);
+        }
+    }
+
+    @Test
+    void oldCompletedTasksMoveToTheArchiveInChunks() throws Exception {
+        RequestPostProcessor ada = owner(userRepository, "archive-ada");
+        RequestPostProcessor ben = owner(userRepository, "archive-ben");
+
+        List<Long> old = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            old.add(create(ada, "old " + i, true));
+        }
+        long open = create(ada, "still open", false);
+        long recent = create(ada, "done just now", true);
+        long reopened = create(ada, "reopened", false);
+        mockMvc.perform(patch("/tasks/" + reopened + "/done").with(ada)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk());
+        assertNotNull(completedAt(reopened));
+
+        backdate(old, Duration.ofHours(2));
+        backdate(List.of(reopened), Duration.ofHours(2));
+        mockMvc.perform(patch("/tasks/" + reopened + "/done").with(ada)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":false}"))
+                .andExpect(status().isOk());
+        assertNull(completedAt(reopened));
+
+        // chunks of 2, 2, 1
+        assertEquals(5, archiver.archive());
+        assertEquals(0, archiver.archive());
+
+        JsonNode live = body(mockMvc.perform(get("/tasks").with(ada)).andExpect(status().isOk()).andReturn());
+        assertEquals(List.of(open, recent, reopened), ids(live));
+        assertEquals(3, stats(ada).get("total").asLong());
+        assertEquals(1, stats(ada).get("done").asLong());
+        old.forEach(id -> assertTrue(tombstones.existsById(id)));
+
+        MvcResult first = mockMvc.perform(get("/tasks/archive").with(ada).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(TaskController.NEXT_CURSOR_HEADER))
+                .andReturn();
+        JsonNode firstPage = body(first);
+        assertEquals(old.subList(0, 3), ids(firstPage));
+        assertEquals("archive-ada", firstPage.get(0).get("username").asText());
+        assertEquals("old 0", firstPage.get(0).get("title").asText());
+        assertTrue(firstPage.get(0).hasNonNull("completedAt"));
+
+        JsonNode secondPage = body(mockMvc.perform(get("/tasks/archive").with(ada).param("limit", "3")
+                        .param("after", first.getResponse().getHeader(TaskController.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TaskController.NEXT_CURSOR_HEADER))
+                .andReturn());
+        assertEquals(old.subList(3, 5), ids(secondPage));
+
+        assertEquals(List.of(), ids(body(mockMvc.perform(get("/tasks/archive").with(ben)).andReturn())));
+        assertTrue(ids(body(mockMvc.perform(get("/tasks/archive").with(user("archive-admin").roles("ADMIN")))
+                .andReturn())).containsAll(old));
+    }
+
+    @Test
+    void aChunkThatRanIntoAWriteIsReadAgain() throws Exception {
+        RequestPostProcessor cy = owner(userRepository, "archive-cy");
+        List<Long> old = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            old.add(create(cy, "old " + i, true));
+        }
+        backdate(old, Duration.ofHours(2));
+
+        conflicts.on(old.get(0), old.get(1), 1);
+        assertEquals(4, archiver.archive());
+
+        assertEquals(List.of(), ids(body(mockMvc.perform(get("/tasks").with(cy)).andReturn())));
+        assertEquals(0, stats(cy).get("total").asLong());
+        old.forEach(id -> assertTrue(tombstones.existsById(id)));
+    }
+
+    @Test
+    void aChunkThatKeepsRunningIntoWritesIsLeftForTheNextRun() throws Exception {
+        RequestPostProcessor di = owner(userRepository, "archive-di");
+        List<Long> old = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            old.add(create(di, "old " + i, true));
+        }
+        backdate(old, Duration.ofHours(2));
+
+        // chunks of 2, 2, 1: the second fails every attempt, the third is still archived
+        conflicts.on(old.get(2), old.get(3), Integer.MAX_VALUE);
+        assertEquals(3, archiver.archive());
+        assertEquals(old.subList(2, 4), ids(body(mockMvc.perform(get("/tasks").with(di)).andReturn())));
+
+        conflicts.on(0, 0, 0);
+        assertEquals(2, archiver.archive());
+        assertEquals(List.of(), ids(body(mockMvc.perform(get("/tasks").with(di)).andReturn())));
+    }
+
+    private void backdate(List<Long> ids, Duration age) {
+        for (Long id : ids) {
+            jdbcTemplate.update("UPDATE tasks SET completed_at = ? WHERE id = ?",
+                    Timestamp.from(Instant.now().minus(age)), id);
+        }
+    }
+
+    private Timestamp completedAt(long id) {
+        return jdbcTemplate.queryForObject("SELECT completed_at FROM tasks WHERE id = ?", Timestamp.class, id);
+    }
+
+    private static List<Long> ids(JsonNode tasks) {
+        List<Long> ids = new ArrayList<>();
+        tasks.forEach(task -> ids.add(task.get("id").asLong()));
+        return ids;
+    }
+
+    private JsonNode body(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode stats(RequestPostProcessor who) throws Exception {
+        return body(mockMvc.perform(get("/tasks/stats").with(who)).andExpect(status().isOk()).andReturn());
+    }
+
+    private long create(RequestPostProcessor who, String title, boolean done) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/tasks").with(who)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":" + done + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+}
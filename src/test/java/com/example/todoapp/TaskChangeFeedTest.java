@@ -0,0 +1,141 @@
+package com.example.todoapp;
+
+import com.example.todoapp.dto.TaskDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Events go out after commit, so this class is not @Transactional.
+class TaskChangeFeedTest extends SharedDatabaseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void ownersAndAdminsReceiveEventsOthersDont() throws Exception {
+        RequestPostProcessor dave = owner(userRepository, "feed-dave");
+        RequestPostProcessor erin = owner(userRepository, "feed-erin");
+
+        MockHttpServletResponse daveStream = subscribe(dave);
+        MockHttpServletResponse erinStream = subscribe(erin);
+        MockHttpServletResponse adminStream = subscribe(user("feed-admin").roles("ADMIN"));
+
+        mockMvc.perform(post("/tasks").with(dave)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Streamed task\",\"done\":false}"))
+                .andExpect(status().isOk());
+
+        awaitContent(daveStream, "event:created");
+        awaitContent(adminStream, "Streamed task");
+        assertTrue(daveStream.getContentAsString().contains("\"title\":\"Streamed task\""));
+        assertFalse(erinStream.getContentAsString().contains("Streamed task"));
+    }
+
+    @Test
+    void slowSubscriberIsEvicted() throws Exception {
+        // dispatcher that never runs: nothing drains, the queue just fills up
+        List<Runnable> parked = new ArrayList<>();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TaskChangeFeed feed = new TaskChangeFeed(new ObjectMapper(), registry, 2, 10, Duration.ofMinutes(1),
+                Duration.ofSeconds(10), parked::add);
+
+        assertNotNull(feed.subscribe("slow"));
+        assertEquals(1, feed.subscriberCount());
+
+        // "connected" + 1 event fill the queue, the next one overflows it
+        for (int i = 0; i < 2; i++) {
+            feed.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.CREATED,
+                    new TaskDTO((long) i, "t" + i, false, "slow")));
+        }
+
+        assertEquals(0, feed.subscriberCount());
+        assertEquals(1.0, registry.get("tasks.stream.evicted").counter().count());
+        assertEquals(0.0, registry.get("tasks.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void stalledWriteIsCutOffAndFreesTheDispatcher() throws Exception {
+        // one dispatcher thread; the first subscriber's socket never takes the data
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TaskChangeFeed feed = new TaskChangeFeed(new ObjectMapper(), registry, 8, 10, Duration.ofMinutes(1),
+                Duration.ofMillis(100), dispatcher);
+        CountDownLatch never = new CountDownLatch(1);
+        SseEmitter stalled = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    never.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("write interrupted", e);
+                }
+            }
+        };
+        CountDownLatch delivered = new CountDownLatch(1);
+        SseEmitter healthy = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        };
+        try {
+            feed.subscribe("stuck", stalled);
+            feed.subscribe("fine", healthy);
+            // queued behind the blocked send
+            assertFalse(delivered.await(200, TimeUnit.MILLISECONDS));
+
+            feed.cutOffStalledWrites();
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, feed.subscriberCount());
+            assertEquals(1.0, registry.get("tasks.stream.evicted").counter().count());
+        } finally {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    private MockHttpServletResponse subscribe(RequestPostProcessor who) throws Exception {
+        return mockMvc.perform(get("/tasks/stream").with(who))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!response.getContentAsString().contains(expected)) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("no '" + expected + "' in stream:\n" + response.getContentAsString());
+            }
+            Thread.sleep(20);
+        }
+    }
+}
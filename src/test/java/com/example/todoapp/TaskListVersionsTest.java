@@ -0,0 +1,57 @@
+package com.example.todoapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskListVersionsTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void everyWriteChangesTheOwnersAndTheGlobalVersion() {
+        TaskListVersions versions = new TaskListVersions(100, Duration.ofHours(1), now::get);
+
+        versions.bump("alice");
+        long alice = versions.ofUser("alice");
+        long all = versions.ofAll();
+        versions.bump("bob");
+
+        assertEquals(alice, versions.ofUser("alice"));
+        assertNotEquals(all, versions.ofAll());
+        versions.bump("alice");
+        assertNotEquals(alice, versions.ofUser("alice"));
+    }
+
+    @Test
+    void aDroppedOwnerFallsBackToTheGlobalVersion() {
+        TaskListVersions versions = new TaskListVersions(100, Duration.ofHours(1), now::get);
+        versions.bump("alice");
+        versions.bump("alice");
+        String before = versions.etag("alice", false, 0, 50);
+
+        now.addAndGet(Duration.ofHours(2).toNanos());
+        versions.bump("bob");
+
+        // never an old value again, even once alice writes after coming back
+        assertEquals(versions.ofAll(), versions.ofUser("alice"));
+        assertNotEquals(before, versions.etag("alice", false, 0, 50));
+        versions.bump("alice");
+        assertNotEquals(before, versions.etag("alice", false, 0, 50));
+        assertEquals(versions.ofAll(), versions.ofUser("alice"));
+    }
+
+    @Test
+    void anOwnerWithoutChangesSinceTheirLastWriteKeepsTheirETagAfterBeingDropped() {
+        TaskListVersions versions = new TaskListVersions(100, Duration.ofHours(1), now::get);
+        versions.bump("alice");
+        String before = versions.etag("alice", false, 0, 50);
+
+        now.addAndGet(Duration.ofHours(2).toNanos());
+
+        assertEquals(before, versions.etag("alice", false, 0, 50));
+    }
+}
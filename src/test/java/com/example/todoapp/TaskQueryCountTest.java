@@ -0,0 +1,164 @@
+package com.example.todoapp;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Guards the list read path against N+1: the number of JDBC statements for
+// GET /tasks must not depend on how many tasks (or distinct owners) come back.
+// Single-task writes must stay one conditional statement each.
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles("test")
+class TaskQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 40})
+    @WithMockUser(username = "stats-admin", roles = "ADMIN")
+    void adminListUsesOneStatementRegardlessOfOwners(int owners) throws Exception {
+        seedOneTaskPerOwner(owners);
+
+        statistics.clear();
+        mockMvc.perform(get("/tasks").param("limit", String.valueOf(owners)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(owners));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 40})
+    @WithMockUser(username = "stats-owner")
+    void userListUsesOneStatementRegardlessOfSize(int tasks) throws Exception {
+        User owner = persistUser("stats-owner");
+        for (int i = 0; i < tasks; i++) {
+            entityManager.persist(new Task("task " + i, owner));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        mockMvc.perform(get("/tasks").param("limit", String.valueOf(tasks)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(tasks));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @WithMockUser(username = "batch-owner")
+    void batchCreateIsSentAsJdbcBatch() throws Exception {
+        persistUser("batch-owner");
+        entityManager.flush();
+        entityManager.clear();
+
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 40; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"title\":\"bulk ").append(i).append("\",\"done\":false}");
+        }
+        body.append("]");
+
+        statistics.clear();
+        mockMvc.perform(post("/tasks/batch").contentType(MediaType.APPLICATION_JSON).content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(40));
+        entityManager.flush();
+
+        // user lookup + id block(s) from the pooled sequence + one batched insert
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @WithMockUser(username = "write-owner")
+    void singleTaskWritesAreOneStatementEach() throws Exception {
+        Task task = new Task("write me", persistUser("write-owner"));
+        entityManager.persist(task);
+        entityManager.flush();
+        entityManager.clear();
+
+        // ownership check, version bump and the returned row: one conditional UPDATE,
+        // plus the task_stats and daily-completion counters because "done" flipped
+        statistics.clear();
+        mockMvc.perform(patch("/tasks/" + task.getId() + "/done")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.done").value(true));
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        // "done" unchanged → no counter update
+        statistics.clear();
+        mockMvc.perform(put("/tasks/" + task.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"renamed\",\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("renamed"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // the DELETE, the delta-sync tombstone and the task_stats counters
+        statistics.clear();
+        mockMvc.perform(delete("/tasks/" + task.getId())).andExpect(status().isOk());
+        entityManager.flush();
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private void seedOneTaskPerOwner(int owners) {
+        for (int i = 0; i < owners; i++) {
+            User owner = persistUser("owner-" + owners + "-" + i);
+            entityManager.persist(new Task("task " + i, owner));
+        }
+        // detach everything so lazy associations would really hit the database
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private User persistUser(String username) {
+        User user = new User(username, "{noop}pw");
+        user.setRoles("ROLE_USER");
+        entityManager.persist(user);
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.todoapp;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The other tests run on H2, which takes the FINAL TABLE / OLD TABLE statements;
+// the PostgreSQL ones (UPDATE ... FROM ... RETURNING, DELETE ... USING ... RETURNING)
+// are never executed in this build, there is no Postgres to run them on. This pins
+// what TaskRepositoryImpl sends under PostgreSQLDialect, statement by statement,
+// so a change to them shows up here and gets checked against a real database by hand.
+class TaskRepositoryImplTest {
+
+    private final List<String> statements = new ArrayList<>();
+    private final NativeQuery<?> query = mock(NativeQuery.class, RETURNS_SELF);
+    private TaskRepositoryImpl repository;
+
+    @BeforeEach
+    void postgres() {
+        SessionImplementor session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(session.getFactory().getJdbcServices().getDialect()).thenReturn(new PostgreSQLDialect());
+        doReturn(query).when(query).unwrap(NativeQuery.class);
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            return query;
+        });
+        repository = new TaskRepositoryImpl(entityManager);
+    }
+
+    @Test
+    void updateReturnsTheRowWithTheDoneFlagFromBefore() {
+        repository.updateIfMatches(7, "alice", 3L, "title", true);
+
+        assertEquals(List.of("update tasks t set title = :title, done = :done,"
+                + " completed_at = case when :done then coalesce(t.completed_at, current_timestamp) end,"
+                + " version = t.version + 1, change_seq = nextval('task_change_seq')"
+                + " from users u, (select id, done from tasks where id = :id for update) o"
+                + " where u.id = t.user_id and o.id = t.id"
+                + " and t.id = :id and u.username = :owner and t.version = :version"
+                + " returning t.id, t.title, t.done, t.version, t.user_id, u.username, o.done"), statements);
+        verify(query).setParameter("id", 7L);
+        verify(query).setParameter("owner", "alice");
+        verify(query).setParameter("version", 3L);
+        verify(query).setParameter("title", "title");
+        verify(query).setParameter("done", true);
+    }
+
+    @Test
+    void adminToggleChecksNeitherOwnerNorVersion() {
+        repository.setDoneIfMatches(7, null, null, false);
+
+        assertEquals(List.of("update tasks t set done = :done,"
+                + " completed_at = case when :done then coalesce(t.completed_at, current_timestamp) end,"
+                + " version = t.version + 1, change_seq = nextval('task_change_seq')"
+                + " from users u, (select id, done from tasks where id = :id for update) o"
+                + " where u.id = t.user_id and o.id = t.id and t.id = :id"
+                + " returning t.id, t.title, t.done, t.version, t.user_id, u.username, o.done"), statements);
+    }
+
+    @Test
+    void deleteReturnsTheRowItRemoved() {
+        repository.deleteIfMatches(7, "alice", 3L);
+
+        assertEquals(List.of("delete from tasks t using users u where u.id = t.user_id"
+                + " and t.id = :id and u.username = :owner and t.version = :version"
+                + " returning t.id, t.title, t.done, t.version, t.user_id, u.username, t.done"), statements);
+        verify(query).setParameter("owner", "alice");
+        verify(query).setParameter("version", 3L);
+    }
+}
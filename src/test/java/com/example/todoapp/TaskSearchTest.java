@@ -0,0 +1,84 @@
+package com.example.todoapp;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// H2 → the in-memory index, which is fed by committed task events, so this class is
+// not @Transactional.
+class TaskSearchTest extends SharedDatabaseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void searchIsRankedAndFollowsWrites() throws Exception {
+        RequestPostProcessor alice = owner(userRepository, "search-alice");
+        create(alice, "Buy milk and eggs and bread");
+        create(alice, "Buy milk");
+        long call = create(alice, "Call mom");
+
+        mockMvc.perform(get("/tasks/search").param("q", "MILK").with(alice))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Buy milk", "Buy milk and eggs and bread")));
+        // every term has to match
+        mockMvc.perform(get("/tasks/search").param("q", "milk eggs").with(alice))
+                .andExpect(jsonPath("$[*].title", contains("Buy milk and eggs and bread")));
+
+        mockMvc.perform(put("/tasks/" + call).with(alice)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Call the milkman\",\"done\":false}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks/search").param("q", "milkman").with(alice))
+                .andExpect(jsonPath("$[*].title", contains("Call the milkman")));
+        mockMvc.perform(get("/tasks/search").param("q", "mom").with(alice))
+                .andExpect(jsonPath("$", empty()));
+
+        mockMvc.perform(delete("/tasks/" + call).with(alice)).andExpect(status().isOk());
+        mockMvc.perform(get("/tasks/search").param("q", "milkman").with(alice))
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    void searchUsesTheSameVisibilityAsTheList() throws Exception {
+        RequestPostProcessor bob = owner(userRepository, "search-bob");
+        RequestPostProcessor carol = owner(userRepository, "search-carol");
+        create(bob, "Water the plants");
+        create(carol, "Water the garden");
+
+        mockMvc.perform(get("/tasks/search").param("q", "water").with(bob))
+                .andExpect(jsonPath("$[*].title", contains("Water the plants")));
+        mockMvc.perform(get("/tasks/search").param("q", "water").param("limit", "1")
+                        .with(user("search-admin").roles("ADMIN")))
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/tasks/search").param("q", "water").with(user("search-admin").roles("ADMIN")))
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        mockMvc.perform(get("/tasks/search").param("q", " ").with(bob))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long create(RequestPostProcessor owner, String title) throws Exception {
+        String body = mockMvc.perform(post("/tasks").with(owner)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Counters are written with the tasks and must survive the commit, so this class
+// is not @Transactional.
+class TaskStatsTest extends SharedDatabaseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskStats taskStats;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writePathsKeepCountersCurrent() throws Exception {
+        RequestPostProcessor kim = owner(userRepository, "stats-kim");
+        RequestPostProcessor lou = owner(userRepository, "stats-lou");
+
+        long first = create(kim, "first", false);
+        create(kim, "second", true);
+        long third = create(kim, "third", false);
+        long lous = create(lou, "lou's", false);
+
+        mockMvc.perform(patch("/tasks/" + first + "/done").with(kim)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/tasks/" + third).with(kim)).andExpect(status().isOk());
+        mockMvc.perform(patch("/tasks/batch/done").with(lou)
+                        .contentType(MediaType.APPLICATION_JSON).content("[{\"id\":" + lous + ",\"done\":true}]"))
+                .andExpect(status().isOk());
+
+        JsonNode mine = stats(kim);
+        assertEquals(2, mine.get("total").asLong());
+        assertEquals(2, mine.get("done").asLong());
+        assertEquals(0, mine.get("open").asLong());
+        assertEquals(1, mine.get("users").size());
+        // "second" was created done, "first" was completed later the same day
+        JsonNode today = mine.get("completions").get(0);
+        assertEquals(LocalDate.now(ZoneOffset.UTC).toString(), today.get("day").asText());
+        assertEquals(2, today.get("completed").asLong());
+
+        JsonNode all = stats(user("stats-admin").roles("ADMIN"));
+        assertTrue(all.get("total").asLong() >= 3);
+        assertTrue(all.get("users").findValuesAsText("username").containsAll(List.of("stats-kim", "stats-lou")));
+        assertEquals(1, stats(lou).get("done").asLong());
+    }
+
+    @Test
+    void readIsTwoStatementsNoMatterHowManyTasks() throws Exception {
+        RequestPostProcessor max = owner(userRepository, "stats-max");
+        for (int i = 0; i < 30; i++) {
+            create(max, "task " + i, i % 2 == 0);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        JsonNode mine = stats(max);
+
+        assertEquals(30, mine.get("total").asLong());
+        assertEquals(15, mine.get("done").asLong());
+        // one for the per-user counters, one for the daily rollup
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void reconciliationFixesDrift() throws Exception {
+        RequestPostProcessor ned = owner(userRepository, "stats-ned");
+        create(ned, "counted", false);
+
+        // a write that bypasses TaskController
+        Long userId = userRepository.findByUsername("stats-ned").orElseThrow().getId();
+        jdbcTemplate.update("INSERT INTO tasks (id, title, done, user_id) VALUES (NEXT VALUE FOR tasks_id_seq, 'sneaky', TRUE, ?)",
+                userId);
+        assertEquals(1, stats(ned).get("total").asLong());
+
+        assertTrue(taskStats.reconcile() >= 1);
+        JsonNode fixed = stats(ned);
+        assertEquals(2, fixed.get("total").asLong());
+        assertEquals(1, fixed.get("done").asLong());
+        assertEquals(0, taskStats.reconcile());
+    }
+
+    private JsonNode stats(RequestPostProcessor who) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/tasks/stats").with(who))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private long create(RequestPostProcessor who, String title, boolean done) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/tasks").with(who)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":" + done + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Own database and committed writes (tombstones, compaction); settle = 0 so every
+// mark is final on the next sync and the deltas are exact.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tasksync;DB_CLOSE_DELAY=-1",
+        "tasks.sync.settle=0s",
+        "tasks.sync.tombstone-retention=0s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TaskSyncTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskSync taskSync;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void deltaContainsOnlyChangedRowsAndTombstones() throws Exception {
+        RequestPostProcessor frank = owner(userRepository, "sync-frank");
+        RequestPostProcessor grace = owner(userRepository, "sync-grace");
+        long keep = create(frank, "keep");
+        long edit = create(frank, "edit");
+        long drop = create(frank, "drop");
+        long others = create(grace, "not frank's");
+
+        JsonNode full = changes(frank, null);
+        assertEquals(List.of(keep, edit, drop), ids(full.get("changed")));
+        // the first token only marks the current position; one more pass settles it
+        JsonNode settled = changes(frank, full.get("next").asText());
+        JsonNode idle = changes(frank, settled.get("next").asText());
+        assertTrue(idle.get("changed").isEmpty());
+
+        mockMvc.perform(patch("/tasks/" + edit + "/done").with(frank)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/tasks/" + drop).with(user("sync-admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+
+        JsonNode delta = changes(frank, idle.get("next").asText());
+        assertEquals(List.of(edit), ids(delta.get("changed")));
+        assertTrue(delta.get("changed").get(0).get("done").asBoolean());
+        assertEquals(List.of(drop), ids(delta.get("deleted")));
+        assertFalse(delta.get("hasMore").asBoolean());
+
+        // admins see every owner's rows (the other tests share this database)
+        List<Long> all = ids(changes(user("sync-admin").roles("ADMIN"), null).get("changed"));
+        assertTrue(all.containsAll(List.of(keep, edit, others)));
+        assertFalse(all.contains(drop));
+    }
+
+    @Test
+    void deltaIsPaged() throws Exception {
+        RequestPostProcessor heidi = owner(userRepository, "sync-heidi");
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(create(heidi, "page " + i));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String token = null;
+        JsonNode page;
+        do {
+            page = json(mockMvc.perform(get("/tasks/changes").with(heidi)
+                            .param("limit", "2")
+                            .param("since", token == null ? "" : token))
+                    .andExpect(status().isOk()));
+            seen.addAll(ids(page.get("changed")));
+            token = page.get("next").asText();
+        } while (page.get("hasMore").asBoolean());
+
+        assertEquals(created, seen);
+    }
+
+    @Test
+    void tokenOlderThanCompactedTombstonesMustResync() throws Exception {
+        RequestPostProcessor ivan = owner(userRepository, "sync-ivan");
+        long doomed = create(ivan, "doomed");
+        JsonNode first = changes(ivan, null);
+        String token = changes(ivan, first.get("next").asText()).get("next").asText();
+
+        mockMvc.perform(delete("/tasks/" + doomed).with(user("sync-admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+        taskSync.compactTombstones();
+
+        mockMvc.perform(get("/tasks/changes").with(ivan).param("since", token))
+                .andExpect(status().isGone());
+        // starting over works
+        assertTrue(changes(ivan, null).get("changed").isEmpty());
+    }
+
+    @Test
+    void firstPassTokenOlderThanCompactedTombstonesMustResync() throws Exception {
+        RequestPostProcessor kurt = owner(userRepository, "sync-kurt");
+        long doomed = create(kurt, "doomed");
+        // a completed first pass, no settle pass after it
+        String token = changes(kurt, null).get("next").asText();
+
+        mockMvc.perform(delete("/tasks/" + doomed).with(user("sync-admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+        taskSync.compactTombstones();
+
+        mockMvc.perform(get("/tasks/changes").with(kurt).param("since", token))
+                .andExpect(status().isGone());
+        // a fresh start after compaction syncs normally
+        JsonNode reload = changes(kurt, null);
+        assertEquals(List.of(), ids(reload.get("changed")));
+        changes(kurt, reload.get("next").asText());
+    }
+
+    @Test
+    void garbageTokenIsRejected() throws Exception {
+        mockMvc.perform(get("/tasks/changes").with(owner(userRepository, "sync-judy")).param("since", "nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode changes(RequestPostProcessor who, String token) throws Exception {
+        return json(mockMvc.perform(get("/tasks/changes").with(who).param("since", token == null ? "" : token))
+                .andExpect(status().isOk()));
+    }
+
+    private long create(RequestPostProcessor who, String title) throws Exception {
+        return json(mockMvc.perform(post("/tasks").with(who)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":false}"))
+                .andExpect(status().isOk())).get("id").asLong();
+    }
+
+    private JsonNode json(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        array.forEach(node -> ids.add(node.isObject() ? node.get("id").asLong() : node.asLong()));
+        return ids;
+    }
+}
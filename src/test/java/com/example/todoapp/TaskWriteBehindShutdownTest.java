@@ -0,0 +1,63 @@
+package com.example.todoapp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The shutdown flush has no later flush to fall back on: it retries the write up
+// to shutdown-attempts times (3 here) and otherwise gives up on what is pending.
+// The repository is a mock; the transactions are real, on an empty H2 database.
+class TaskWriteBehindShutdownTest {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TaskWriteBehind writeBehind;
+
+    @BeforeEach
+    void oneToggleQueued() {
+        writeBehind = new TaskWriteBehind(taskRepository, mock(TaskStats.class),
+                new TaskListVersions(100, Duration.ofHours(1)), mock(ApplicationEventPublisher.class),
+                new DataSourceTransactionManager(new DriverManagerDataSource("jdbc:h2:mem:wb-shutdown")),
+                meterRegistry, true, 500, 3);
+        writeBehind.enqueue(new TaskRow(7L, "task", false, 0, 1L, "wb-shutdown", false), true, "wb-shutdown");
+    }
+
+    @Test
+    void aFailedShutdownWriteIsRetried() throws Exception {
+        when(taskRepository.setDoneAll(anyMap()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(List.of(new TaskRow(7L, "task", true, 1, 1L, "wb-shutdown", false)));
+
+        writeBehind.destroy();
+        verify(taskRepository, times(2)).setDoneAll(anyMap());
+        assertEquals(0, pending());
+    }
+
+    @Test
+    void retriesAreBounded() throws Exception {
+        when(taskRepository.setDoneAll(anyMap())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        writeBehind.destroy();
+        verify(taskRepository, times(3)).setDoneAll(anyMap());
+        // given up on, and logged at ERROR with the task ids
+        assertEquals(1, pending());
+    }
+
+    private double pending() {
+        return meterRegistry.get("tasks.write-behind.pending").gauge().value();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.todoapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.Duration;
+
+import static com.example.todoapp.TestUsers.owner;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The interval is long enough that only the test (or the size threshold) flushes.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1",
+        "tasks.write-behind.enabled=true",
+        "tasks.write-behind.interval=1h",
+        "tasks.write-behind.max-pending=3"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TaskWriteBehindTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskWriteBehind writeBehind;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void rapidTogglesAreAcknowledgedAndWrittenOnce() throws Exception {
+        RequestPostProcessor ann = owner(userRepository, "wb-ann");
+        long id = create(ann, "spammed", false);
+
+        for (int i = 0; i < 5; i++) {
+            toggle(ann, id, true).andExpect(status().isAccepted());
+            toggle(ann, id, false).andExpect(status().isAccepted());
+        }
+        toggle(ann, id, true).andExpect(status().isAccepted());
+
+        // not written yet, but the requester already reads the new state; others don't
+        assertFalse(taskRepository.findRowById(id).orElseThrow().done());
+        assertTrue(listed(ann, id).get("done").asBoolean());
+        assertFalse(listed(user("wb-admin").roles("ADMIN"), id).get("done").asBoolean());
+        toggle(owner(userRepository, "wb-intruder"), id, false).andExpect(status().isForbidden());
+
+        writeBehind.flush();
+        TaskRow written = taskRepository.findRowById(id).orElseThrow();
+        assertTrue(written.done());
+        assertEquals(1, written.version());
+        assertEquals(1, stats(ann).get("done").asLong());
+
+        // back where it started → nothing to write
+        toggle(ann, id, false).andExpect(status().isAccepted());
+        toggle(ann, id, true).andExpect(status().isAccepted());
+        writeBehind.flush();
+        assertEquals(1, taskRepository.findRowById(id).orElseThrow().version());
+    }
+
+    @Test
+    void synchronousWritesAreNeverOvertaken() throws Exception {
+        RequestPostProcessor bo = owner(userRepository, "wb-bo");
+        long id = create(bo, "raced", false);
+
+        toggle(bo, id, true).andExpect(status().isAccepted());
+        mockMvc.perform(put("/tasks/" + id).with(bo)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"renamed\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+
+        writeBehind.flush();
+        TaskRow row = taskRepository.findRowById(id).orElseThrow();
+        assertFalse(row.done());
+        assertEquals(2, row.version());
+
+        // If-Match toggles skip the queue
+        mockMvc.perform(patch("/tasks/" + id + "/done").with(bo).header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"done\":true}"))
+                .andExpect(status().isOk());
+        assertTrue(taskRepository.findRowById(id).orElseThrow().done());
+    }
+
+    @Test
+    void thresholdAndShutdownFlushEverything() throws Exception {
+        RequestPostProcessor cy = owner(userRepository, "wb-cy");
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = create(cy, "task " + i, false);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            toggle(cy, ids[i], true).andExpect(status().isAccepted());
+        }
+        // max-pending reached → written right after the third request, without waiting for the interval
+        for (int i = 0; i < 3; i++) {
+            awaitDone(ids[i]);
+        }
+
+        toggle(cy, ids[3], true).andExpect(status().isAccepted());
+        writeBehind.destroy();
+        assertTrue(taskRepository.findRowById(ids[3]).orElseThrow().done());
+        assertEquals(4, stats(cy).get("done").asLong());
+    }
+
+    @Test
+    void aRolledBackWriteLeavesTheTogglesItFlushedPending() throws Exception {
+        RequestPostProcessor di = owner(userRepository, "wb-di");
+        long id = create(di, "kept", false);
+
+        toggle(di, id, true).andExpect(status().isAccepted());
+        // flushes the toggle in its transaction, then fails the If-Match check → rolled back
+        mockMvc.perform(put("/tasks/" + id).with(di).header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"stale\",\"done\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        assertFalse(taskRepository.findRowById(id).orElseThrow().done());
+        assertTrue(listed(di, id).get("done").asBoolean());
+
+        writeBehind.flush();
+        TaskRow row = taskRepository.findRowById(id).orElseThrow();
+        assertTrue(row.done());
+        assertEquals("kept", row.title());
+    }
+
+    private void awaitDone(long id) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!taskRepository.findRowById(id).orElseThrow().done()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("task " + id + " not written");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private ResultActions toggle(RequestPostProcessor who, long id, boolean done) throws Exception {
+        return mockMvc.perform(patch("/tasks/" + id + "/done").with(who)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"done\":" + done + "}"));
+    }
+
+    private JsonNode listed(RequestPostProcessor who, long id) throws Exception {
+        JsonNode tasks = objectMapper.readTree(mockMvc.perform(get("/tasks").with(who).param("limit", "200"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        for (JsonNode task : tasks) {
+            if (task.get("id").asLong() == id) {
+                return task;
+            }
+        }
+        throw new AssertionError("task " + id + " not listed");
+    }
+
+    private JsonNode stats(RequestPostProcessor who) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/tasks/stats").with(who))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private long create(RequestPostProcessor who, String title, boolean done) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/tasks").with(who)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"done\":" + done + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+}
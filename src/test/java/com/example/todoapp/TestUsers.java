@@ -0,0 +1,20 @@
+package com.example.todoapp;
+
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+
+// Users for the test classes that commit their writes: saved for real, so a name
+// can only be used once per database (SharedDatabaseTest classes share one).
+final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    static RequestPostProcessor owner(UserRepository userRepository, String username) {
+        User user = new User(username, "{noop}pw");
+        user.setRoles("ROLE_USER");
+        userRepository.save(user);
+        return user(username).roles("USER");
+    }
+}
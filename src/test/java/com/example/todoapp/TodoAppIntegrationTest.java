@@ -5,12 +5,14 @@ package com.example.todoapp;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.Cookie;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -33,6 +35,12 @@ class TodoAppIntegrationTest {
     @Autowired
     private ObjectMapper mapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
     // ------------------------------------------------------------------------
     // 🔐 AUTH TESTS
     // ------------------------------------------------------------------------
@@ -66,6 +74,47 @@ class TodoAppIntegrationTest {
         assert clearedCookie.getMaxAge() == 0;
     }
 
+    @Test
+    void repeatedRequestsAreServedFromVerifiedTokenCache() throws Exception {
+        String username = "cached" + System.currentTimeMillis();
+        register(username, "secret");
+        Cookie jwtCookie = login(username, "secret");
+
+        double hitsBefore = cacheGets("hit");
+        mockMvc.perform(get("/auth/me").cookie(jwtCookie)).andExpect(status().isOk());
+        mockMvc.perform(get("/auth/me").cookie(jwtCookie)).andExpect(status().isOk());
+
+        // first request verifies and caches, second one is a hit
+        assert cacheGets("hit") - hitsBefore == 1;
+    }
+
+    @Test
+    void authStagesAreTimed() throws Exception {
+        String username = "timed" + System.currentTimeMillis();
+        register(username, "secret");
+        Cookie jwtCookie = login(username, "secret");
+        mockMvc.perform(get("/auth/me").cookie(jwtCookie)).andExpect(status().isOk());
+
+        assert meterRegistry.get("auth.login.stage").tag("stage", "password_match").timer().count() > 0;
+        assert meterRegistry.get("auth.filter.stage").tag("stage", "verify").timer().count() > 0;
+        assert meterRegistry.get("auth.filter.stage").tag("stage", "chain").timer().count() > 0;
+    }
+
+    @Test
+    void loginRehashesPasswordStoredWithOldCost() throws Exception {
+        String username = "rehash" + System.currentTimeMillis();
+        User legacy = new User(username, new BCryptPasswordEncoder(4).encode("pw"));
+        legacy.setRoles("ROLE_USER");
+        userRepository.save(legacy);
+
+        login(username, "pw");
+
+        String stored = userRepository.findByUsername(username).orElseThrow().getPassword();
+        assert stored.startsWith("$2a$10$") : stored;
+        // the new hash still verifies
+        login(username, "pw");
+    }
+
     @Test
     void invalidLoginShouldReturnUnauthorized() throws Exception {
         String username = "mallory" + System.currentTimeMillis();
@@ -146,6 +195,116 @@ class TodoAppIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    void tasksArePagedWithOpaqueCursor() throws Exception {
+        String username = "pager" + System.currentTimeMillis();
+        register(username, "pw");
+        Cookie cookie = login(username, "pw");
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/tasks").with(csrf()).cookie(cookie)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"title\":\"Task " + i + "\",\"done\":false}"))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/tasks").param("limit", "2").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("Task 1"))
+                .andExpect(header().exists(TaskController.NEXT_CURSOR_HEADER))
+                .andReturn();
+        String next = first.getResponse().getHeader(TaskController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/tasks").param("after", next).param("limit", "2").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Task 3"))
+                .andExpect(header().doesNotExist(TaskController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void batchCreateAndBatchDone() throws Exception {
+        String owner = "batcher" + System.currentTimeMillis();
+        register(owner, "pw");
+        Cookie ownerCookie = login(owner, "pw");
+
+        MvcResult created = mockMvc.perform(post("/tasks/batch").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"One\",\"done\":false},{\"title\":\"Two\",\"done\":false}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].title").value("Two"))
+                .andReturn();
+        Number first = JsonPath.read(created.getResponse().getContentAsString(), "$[0].id");
+        Number second = JsonPath.read(created.getResponse().getContentAsString(), "$[1].id");
+        String doneBody = "[{\"id\":" + first + ",\"done\":true},{\"id\":" + second + ",\"done\":true}]";
+
+        // blank titles are rejected for the whole batch
+        mockMvc.perform(post("/tasks/batch").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"ok\"},{\"title\":\"\"}]"))
+                .andExpect(status().isBadRequest());
+
+        // someone else's tasks → forbidden
+        String intruder = "batchintruder" + System.currentTimeMillis();
+        register(intruder, "pw");
+        Cookie intruderCookie = login(intruder, "pw");
+        mockMvc.perform(patch("/tasks/batch/done").with(csrf()).cookie(intruderCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(doneBody))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(patch("/tasks/batch/done").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(doneBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].done").value(true))
+                .andExpect(jsonPath("$[1].done").value(true));
+    }
+
+    @Test
+    void taskListIsConditionalOnETag() throws Exception {
+        String owner = "etag" + System.currentTimeMillis();
+        register(owner, "pw");
+        Cookie ownerCookie = login(owner, "pw");
+        MvcResult created = mockMvc.perform(post("/tasks").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Cached\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Number taskId = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        String etag = mockMvc.perform(get("/tasks").cookie(ownerCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // unchanged list → 304 without a body
+        mockMvc.perform(get("/tasks").cookie(ownerCookie).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // another page of the same list has its own ETag
+        mockMvc.perform(get("/tasks").param("limit", "1").cookie(ownerCookie).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+
+        // an admin editing the task invalidates the owner's ETag
+        String admin = "etagadmin" + System.currentTimeMillis();
+        registerAsAdmin(admin, "pw");
+        Cookie adminCookie = login(admin, "pw");
+        mockMvc.perform(patch("/tasks/" + taskId + "/done").with(csrf()).cookie(adminCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isOk());
+
+        String changed = mockMvc.perform(get("/tasks").cookie(ownerCookie).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].done").value(true))
+                .andReturn().getResponse().getHeader("ETag");
+        assert !etag.equals(changed);
+    }
+
     // ------------------------------------------------------------------------
     // 🔒 TASK TESTS (SECURITY)
     // ------------------------------------------------------------------------
@@ -186,6 +345,61 @@ class TodoAppIntegrationTest {
                 .andExpect(jsonPath("$.title").value("Reviewed"));
     }
 
+    @Test
+    void concurrentEditsNeedTheCurrentVersion() throws Exception {
+        String owner = "versioned" + System.currentTimeMillis();
+        register(owner, "pw");
+        Cookie ownerCookie = login(owner, "pw");
+
+        MvcResult result = mockMvc.perform(post("/tasks").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Shared\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn();
+        Number taskId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        // first writer wins and gets the new version back as ETag
+        mockMvc.perform(put("/tasks/" + taskId).with(csrf()).cookie(ownerCookie)
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Mine\",\"done\":false}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        // second writer still holds version 0 → 412, nothing overwritten
+        mockMvc.perform(patch("/tasks/" + taskId + "/done").with(csrf()).cookie(ownerCookie)
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/tasks/" + taskId).with(csrf()).cookie(ownerCookie)
+                        .header("If-Match", "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        // without If-Match the write is unconditional
+        mockMvc.perform(patch("/tasks/" + taskId + "/done").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Mine"))
+                .andExpect(jsonPath("$.version").value(2));
+
+        // unknown ids → 404 on every single-task write
+        long missing = taskId.longValue() + 1_000_000;
+        mockMvc.perform(put("/tasks/" + missing).with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"x\",\"done\":false}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/tasks/" + missing + "/done").with(csrf()).cookie(ownerCookie)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\":true}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/tasks/" + missing).with(csrf()).cookie(ownerCookie))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void adminCanDeleteTask_userCannot() throws Exception {
         String user = "deleteme" + System.currentTimeMillis();
@@ -217,6 +431,14 @@ class TodoAppIntegrationTest {
     // 🛠 HELPERS
     // ------------------------------------------------------------------------
 
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
     private void register(String username, String password) throws Exception {
         mockMvc.perform(post("/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,263 @@
+package com.example.todoapp.load;
+
+import com.example.todoapp.TodoappApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// In-process load generator: boots TodoappApplication on its own H2 database and a
+// random port, seeds users/tasks over HTTP and drives a weighted mix of auth and
+// task requests from many concurrent clients. Latencies go into HdrHistograms, one
+// per operation, and come back as a Report that serializes straight to JSON.
+// Used by the @Tag("load") tests, so it only runs with -Pload-test.
+class LoadHarness implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String PASSWORD = "pw";
+
+    enum Operation { LOGIN, LIST, CREATE, TOGGLE, DELETE }
+
+    // relative weights, e.g. "login=5,list=60,create=15,toggle=15,delete=5"
+    record Mix(Map<Operation, Integer> weights) {
+
+        static Mix parse(String spec) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("=");
+                weights.put(Operation.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+            }
+            return new Mix(weights);
+        }
+
+        Operation pick() {
+            int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+            int roll = ThreadLocalRandom.current().nextInt(total);
+            for (Map.Entry<Operation, Integer> e : weights.entrySet()) {
+                roll -= e.getValue();
+                if (roll < 0) {
+                    return e.getKey();
+                }
+            }
+            throw new IllegalStateException("empty mix");
+        }
+    }
+
+    record Stats(long requests, long errors, long rejected, double rps,
+                 double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        static Stats of(Histogram h, long errors, long rejected, Duration duration) {
+            return new Stats(h.getTotalCount(), errors, rejected, h.getTotalCount() / (double) duration.toSeconds(),
+                    h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                    h.getValueAtPercentile(99.9) / 1e6, h.getMaxValue() / 1e6);
+        }
+    }
+
+    record Report(String name, int clients, long seconds, Map<Operation, Integer> mix,
+                  Stats total, Map<Operation, Stats> operations) {}
+
+    // one seeded account: its session cookie and the ids of tasks it still owns
+    private record Account(String username, String cookie, ConcurrentLinkedDeque<Long> taskIds) {}
+
+    private final String name;
+    private final ConfigurableApplicationContext ctx;
+    private final String base;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final List<Account> accounts = new ArrayList<>();
+
+    private LoadHarness(String name, ConfigurableApplicationContext ctx) {
+        this.name = name;
+        this.ctx = ctx;
+        this.base = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+    }
+
+    // extra args in --key=value form; command-line args win over application.yml in the working directory
+    static LoadHarness start(String name, String... extraArgs) {
+        String[] args = Stream.concat(Stream.of(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + name + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.SQL=WARN"),
+                Stream.of(extraArgs)).toArray(String[]::new);
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(TodoappApplication.class)
+                .profiles("test")
+                .run(args);
+        return new LoadHarness(name, ctx);
+    }
+
+    LoadHarness seed(int users, int tasksPerUser) throws Exception {
+        for (int i = 0; i < users; i++) {
+            String username = "load-" + name + "-" + i;
+            String body = credentials(username);
+            http.send(post("/auth/register", null, body), HttpResponse.BodyHandlers.discarding());
+            String cookie = sessionCookie(http.send(post("/auth/login", null, body), HttpResponse.BodyHandlers.discarding()));
+
+            ConcurrentLinkedDeque<Long> ids = new ConcurrentLinkedDeque<>();
+            for (int done = 0; done < tasksPerUser; done += 500) {
+                StringBuilder batch = new StringBuilder("[");
+                for (int t = done; t < Math.min(tasksPerUser, done + 500); t++) {
+                    if (batch.length() > 1) batch.append(',');
+                    batch.append("{\"title\":\"seed ").append(t).append("\",\"done\":false}");
+                }
+                HttpResponse<String> created = http.send(post("/tasks/batch", cookie, batch.append(']').toString()),
+                        HttpResponse.BodyHandlers.ofString());
+                for (JsonNode task : JSON.readTree(created.body())) {
+                    ids.add(task.get("id").asLong());
+                }
+            }
+            accounts.add(new Account(username, cookie, ids));
+        }
+        return this;
+    }
+
+    Report run(int clients, Duration duration, Mix mix) throws InterruptedException {
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> rejected = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new ConcurrentHistogram(Duration.ofSeconds(60).toNanos(), 3));
+            errors.put(op, new AtomicLong());
+            rejected.put(op, new AtomicLong());
+        }
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        // the build targets Java 17, so the driver itself uses plain platform threads
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            for (int c = 0; c < clients; c++) {
+                Account account = accounts.get(c % accounts.size());
+                pool.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Operation op = mix.pick();
+                        long start = System.nanoTime();
+                        try {
+                            int status = execute(op, account);
+                            latencies.get(op).recordValue(System.nanoTime() - start);
+                            if (status == 429 || status == 503) rejected.get(op).incrementAndGet();
+                            else if (status != 200) errors.get(op).incrementAndGet();
+                        } catch (Exception e) {
+                            errors.get(op).incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+
+        Histogram all = new Histogram(Duration.ofSeconds(60).toNanos(), 3);
+        long allErrors = 0;
+        long allRejected = 0;
+        Map<Operation, Stats> perOperation = new LinkedHashMap<>();
+        for (Operation op : mix.weights().keySet()) {
+            all.add(latencies.get(op));
+            allErrors += errors.get(op).get();
+            allRejected += rejected.get(op).get();
+            perOperation.put(op, Stats.of(latencies.get(op), errors.get(op).get(), rejected.get(op).get(), duration));
+        }
+        return new Report(name, clients, duration.toSeconds(), mix.weights(),
+                Stats.of(all, allErrors, allRejected, duration), perOperation);
+    }
+
+    static void write(Object report, String fileName) throws IOException {
+        File out = new File("target/load/" + fileName);
+        out.getParentFile().mkdirs();
+        JSON.writeValue(out, report);
+    }
+
+    @Override
+    public void close() {
+        ctx.close();
+    }
+
+    private int execute(Operation op, Account account) throws Exception {
+        String cookie = account.cookie();
+        switch (op) {
+            case LOGIN -> {
+                return send(post("/auth/login", null, credentials(account.username())));
+            }
+            case LIST -> {
+                return send(HttpRequest.newBuilder(URI.create(base + "/tasks?limit=50"))
+                        .header("Cookie", cookie).GET().build());
+            }
+            case CREATE -> {
+                HttpResponse<String> created = http.send(post("/tasks", cookie, "{\"title\":\"load\",\"done\":false}"),
+                        HttpResponse.BodyHandlers.ofString());
+                if (created.statusCode() == 200) {
+                    account.taskIds().addFirst(JSON.readTree(created.body()).get("id").asLong());
+                }
+                return created.statusCode();
+            }
+            case TOGGLE -> {
+                Long id = account.taskIds().peekFirst();
+                if (id == null) {
+                    return execute(Operation.CREATE, account);
+                }
+                return send(HttpRequest.newBuilder(URI.create(base + "/tasks/" + id + "/done"))
+                        .header("Cookie", cookie)
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                                "{\"done\":" + ThreadLocalRandom.current().nextBoolean() + "}"))
+                        .build());
+            }
+            case DELETE -> {
+                Long id = account.taskIds().pollLast();
+                if (id == null) {
+                    return execute(Operation.CREATE, account);
+                }
+                return send(HttpRequest.newBuilder(URI.create(base + "/tasks/" + id))
+                        .header("Cookie", cookie).DELETE().build());
+            }
+            default -> throw new IllegalArgumentException(op.name());
+        }
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest post(String path, String cookie, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (cookie != null) {
+            builder.header("Cookie", cookie);
+        }
+        return builder.build();
+    }
+
+    private static String credentials(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    // the JWT cookie is Secure, so HttpClient's CookieManager would never send it over http
+    private static String sessionCookie(HttpResponse<?> login) {
+        String setCookie = login.headers().firstValue("Set-Cookie").orElseThrow();
+        return setCookie.substring(0, setCookie.indexOf(';'));
+    }
+}
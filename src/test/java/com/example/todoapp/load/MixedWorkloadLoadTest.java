@@ -0,0 +1,33 @@
+package com.example.todoapp.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// End-to-end throughput and p50/p99/p999 per operation for a mixed auth/task workload.
+// Run with: mvn -Pload-test test -Dtest=MixedWorkloadLoadTest, results in target/load/mixed-workload.json
+// Tune with -Dload.users, -Dload.tasks (per user), -Dload.clients, -Dload.seconds and
+// -Dload.mix="login=5,list=60,create=15,toggle=15,delete=5"
+@Tag("load")
+class MixedWorkloadLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final int TASKS_PER_USER = Integer.getInteger("load.tasks", 200);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 100);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 15));
+    private static final LoadHarness.Mix MIX =
+            LoadHarness.Mix.parse(System.getProperty("load.mix", "login=5,list=60,create=15,toggle=15,delete=5"));
+
+    @Test
+    void mixedAuthAndTaskWorkload() throws Exception {
+        try (LoadHarness harness = LoadHarness.start("mixed")) {
+            LoadHarness.Report report = harness.seed(USERS, TASKS_PER_USER).run(CLIENTS, DURATION, MIX);
+            LoadHarness.write(report, "mixed-workload.json");
+
+            assertEquals(0, report.total().errors(), "errors");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.todoapp.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares request throughput and tail latency of platform-thread vs. virtual-thread
+// request execution at high client concurrency. Run with: mvn -Pload-test test
+// (needs a Java 21 runtime; tune with -Dload.clients=... -Dload.seconds=...)
+@Tag("load")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 400);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.seconds", 15));
+    private static final int USERS = 20;
+    private static final LoadHarness.Mix MIX = LoadHarness.Mix.parse("list=8,create=2");
+
+    @Test
+    void compareThreadModes() throws Exception {
+        LoadHarness.Report platform = run(false);
+        LoadHarness.Report virtual = run(true);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("clients", CLIENTS);
+        report.put("seconds", DURATION.toSeconds());
+        report.put("platform", platform);
+        report.put("virtual", virtual);
+        LoadHarness.write(report, "virtual-threads.json");
+
+        assertEquals(0, platform.total().errors(), "platform mode errors");
+        assertEquals(0, virtual.total().errors(), "virtual mode errors");
+    }
+
+    private LoadHarness.Report run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (LoadHarness harness = LoadHarness.start(mode, "--spring.threads.virtual.enabled=" + virtualThreads)) {
+            return harness.seed(USERS, 0).run(CLIENTS, DURATION, MIX);
+        }
+    }
+}
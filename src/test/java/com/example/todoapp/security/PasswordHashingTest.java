@@ -0,0 +1,83 @@
+package com.example.todoapp.security;
+
+import com.example.todoapp.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingTest {
+
+    @Test
+    void fullQueueIsRejectedWithRetryAfter() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                return true;
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHashing hashing = new PasswordHashing(slow, 10, 1, 1, registry);
+        try {
+            // one hash running, one waiting → the pool is full
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hashing.encode("a"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashing.matches("b", "hash"));
+            while (registry.get("auth.hashing.queue").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            TooManyRequestsException ex = assertThrows(TooManyRequestsException.class, () -> hashing.encode("c"));
+            assertEquals(1, ex.getRetryAfterSeconds());
+            assertEquals(1.0, registry.get("auth.hashing.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            hashing.destroy();
+        }
+    }
+
+    @Test
+    void onlyWeakerHashesNeedUpgrade() {
+        PasswordHashing hashing = new PasswordHashing(new BCryptPasswordEncoder(6), 6, 1, 4, new SimpleMeterRegistry());
+        try {
+            assertFalse(hashing.upgradeEncoding(hashing.encode("pw")));
+            assertTrue(hashing.upgradeEncoding(new BCryptPasswordEncoder(4).encode("pw")));
+            // hashed by an instance that calibrated higher: kept, never downgraded
+            assertFalse(hashing.upgradeEncoding(new BCryptPasswordEncoder(7).encode("pw")));
+            assertFalse(hashing.upgradeEncoding("not-a-bcrypt-hash"));
+        } finally {
+            hashing.destroy();
+        }
+    }
+
+    @Test
+    void calibrationStaysWithinBounds() {
+        // nothing fits in 1ns → the minimum; everything fits in a minute → the maximum
+        assertEquals(4, BCryptCalibration.strengthFor(Duration.ofNanos(1), 4, 6));
+        assertEquals(6, BCryptCalibration.strengthFor(Duration.ofMinutes(1), 4, 6));
+    }
+}
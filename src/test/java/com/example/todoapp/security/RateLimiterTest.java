@@ -0,0 +1,89 @@
+package com.example.todoapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(-5_000_000_000L);
+
+    @Test
+    void burstThenOneTokenPerInterval() {
+        // 5 per 10s → one token back every 2s
+        RateLimiter limiter = new RateLimiter(5, Duration.ofSeconds(10), 100, now::get);
+
+        for (int i = 4; i >= 0; i--) {
+            RateLimiter.Decision decision = limiter.tryAcquire("alice");
+            assertTrue(decision.allowed());
+            assertEquals(i, decision.remaining());
+        }
+        RateLimiter.Decision rejected = limiter.tryAcquire("alice");
+        assertFalse(rejected.allowed());
+        assertEquals(2, rejected.retryAfterSeconds());
+        assertEquals(10, rejected.resetSeconds());
+
+        // other keys have their own bucket
+        assertTrue(limiter.tryAcquire("bob").allowed());
+
+        now.addAndGet(Duration.ofMillis(1500).toNanos());
+        RateLimiter.Decision early = limiter.tryAcquire("alice");
+        assertFalse(early.allowed());
+        assertEquals(1, early.retryAfterSeconds());
+
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        assertTrue(limiter.tryAcquire("alice").allowed());
+        assertFalse(limiter.tryAcquire("alice").allowed());
+
+        // idle for a whole period → full again
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(4, limiter.tryAcquire("alice").remaining());
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndKeysAreBounded() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofSeconds(10), 1_000, now::get);
+        for (int i = 0; i < 50_000; i++) {
+            limiter.tryAcquire("ip-" + i);
+        }
+        assertTrue(limiter.size() <= 1_000, "size " + limiter.size());
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void concurrentCallersNeverOverdrawABucket() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofHours(1), 100);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("shared").allowed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(100, allowed.get());
+    }
+}
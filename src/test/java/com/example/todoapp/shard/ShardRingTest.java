@@ -0,0 +1,63 @@
+package com.example.todoapp.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRingTest {
+
+    private static final int USERS = 20_000;
+
+    @Test
+    void placementDependsOnlyOnTheNames() {
+        ShardRing ring = new ShardRing(List.of("a", "b", "c"), 128);
+        ShardRing reordered = new ShardRing(List.of("c", "a", "b"), 128);
+
+        for (long userId = 1; userId <= 1000; userId++) {
+            assertEquals(ring.shardFor(userId), reordered.shardFor(userId));
+            assertEquals(ring.shardFor(userId), ring.shardFor(userId));
+        }
+        assertEquals(List.of("a", "b", "c"), reordered.names());
+    }
+
+    @Test
+    void usersSpreadEvenly() {
+        ShardRing ring = new ShardRing(List.of("a", "b", "c", "d"), 128);
+
+        Map<String, Integer> perShard = new HashMap<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            perShard.merge(ring.shardFor(userId), 1, Integer::sum);
+        }
+        assertEquals(4, perShard.size());
+        // a quarter each, give or take
+        perShard.forEach((shard, users) -> assertTrue(users > USERS * 0.18 && users < USERS * 0.32,
+                shard + " got " + users + " of " + USERS));
+    }
+
+    @Test
+    void addingAShardOnlyMovesUsersOntoIt() {
+        ShardRing four = new ShardRing(List.of("a", "b", "c", "d"), 128);
+        ShardRing five = new ShardRing(List.of("a", "b", "c", "d", "e"), 128);
+
+        int moved = 0;
+        for (long userId = 1; userId <= USERS; userId++) {
+            String before = four.shardFor(userId);
+            String after = five.shardFor(userId);
+            if (!before.equals(after)) {
+                assertEquals("e", after);
+                moved++;
+            }
+        }
+        // about a fifth, not the ~80% a modulo placement would move
+        assertTrue(moved > USERS * 0.12 && moved < USERS * 0.28, moved + " of " + USERS + " moved");
+    }
+
+    @Test
+    void needsAShard() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(), 128));
+    }
+}